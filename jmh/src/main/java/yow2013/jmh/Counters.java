@@ -0,0 +1,27 @@
+package yow2013.jmh;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Events published and consumed per second. The primary result counts
+ * calls, which includes consumer polls that found nothing, so these are the
+ * numbers to compare.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class Counters
+{
+    public long published;
+    public long consumed;
+
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+        published = 0;
+        consumed = 0;
+    }
+}
@@ -0,0 +1,176 @@
+package yow2013.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import yow2013.immutable.CustomRingBuffer;
+import yow2013.immutable.SimpleEvent;
+
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * {@link CustomRingBuffer}: a new {@link SimpleEvent} per event, referenced from the
+ * ring's {@code Object[]}. Batches use {@code put(T[], int, int)}. The consumers
+ * are gated on the sequencer directly rather than created as handlers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class CustomRingBufferBenchmark
+{
+    @State(Scope.Group)
+    public static class Ring extends RingState
+    {
+        private Sequencer sequencer;
+        private CustomRingBuffer<SimpleEvent> ringBuffer;
+
+        @Override
+        protected void create(ProducerType producerType, int size, WaitStrategy waitStrategy)
+        {
+            sequencer = newSequencer(producerType, size, waitStrategy);
+            ringBuffer = new CustomRingBuffer<>(sequencer);
+        }
+
+        @Override
+        protected void addGatingSequences(Sequence... sequences)
+        {
+            sequencer.addGatingSequences(sequences);
+        }
+
+        @Override
+        protected SequenceBarrier newBarrier()
+        {
+            return sequencer.newBarrier();
+        }
+
+        @Override
+        protected long getCursor()
+        {
+            return sequencer.getCursor();
+        }
+
+        @Override
+        protected Producer newProducer(final int batchSize)
+        {
+            return new Producer()
+            {
+                private final SimpleEvent[] events = new SimpleEvent[batchSize];
+
+                @Override
+                public void publish(long value)
+                {
+                    if (batchSize == 1)
+                    {
+                        ringBuffer.put(new SimpleEvent(value, value, value, value));
+                    }
+                    else
+                    {
+                        ringBuffer.put(fill(value), 0, batchSize);
+                    }
+                }
+
+                @Override
+                public boolean tryPublish(long value)
+                {
+                    if (batchSize == 1)
+                    {
+                        return ringBuffer.tryPut(new SimpleEvent(value, value, value, value));
+                    }
+                    return ringBuffer.tryPut(fill(value), 0, batchSize);
+                }
+
+                private SimpleEvent[] fill(long value)
+                {
+                    for (int i = 0; i < batchSize; i++)
+                    {
+                        events[i] = new SimpleEvent(value, i, i, i);
+                    }
+                    return events;
+                }
+            };
+        }
+
+        @Override
+        protected Reader newReader(final boolean take)
+        {
+            return new Reader()
+            {
+                @Override
+                public long read(long sequence)
+                {
+                    return (take ? ringBuffer.take(sequence) : ringBuffer.peek(sequence)).getId();
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public void oneToOneProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public void oneToOneConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+
+    @Benchmark
+    @Group("oneToThree")
+    @GroupThreads(1)
+    public void oneToThreeProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("oneToThree")
+    @GroupThreads(3)
+    public void oneToThreeConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+
+    @Benchmark
+    @Group("threeToOne")
+    @GroupThreads(3)
+    public void threeToOneProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("threeToOne")
+    @GroupThreads(1)
+    public void threeToOneConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+}
@@ -0,0 +1,22 @@
+package yow2013.jmh;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+
+/**
+ * The calling thread's side of a {@link RingState}, created by the ring on
+ * first use.
+ */
+@State(Scope.Thread)
+public class Endpoint
+{
+    RingState.Producer producer;
+    long value;
+
+    RingState.Reader reader;
+    SequenceBarrier barrier;
+    Sequence sequence;
+}
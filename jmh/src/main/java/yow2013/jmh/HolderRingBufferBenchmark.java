@@ -0,0 +1,176 @@
+package yow2013.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import yow2013.immutable.EventHolder;
+import yow2013.immutable.SimpleEvent;
+
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * {@code RingBuffer<EventHolder>}: a new {@link SimpleEvent} per event, referenced from
+ * a pre-allocated holder.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class HolderRingBufferBenchmark
+{
+    @State(Scope.Group)
+    public static class Ring extends RingState
+    {
+        private RingBuffer<EventHolder> ringBuffer;
+
+        @Override
+        protected void create(ProducerType producerType, int size, WaitStrategy waitStrategy)
+        {
+            ringBuffer = RingBuffer.create(producerType, EventHolder.FACTORY, size, waitStrategy);
+        }
+
+        @Override
+        protected void addGatingSequences(Sequence... sequences)
+        {
+            ringBuffer.addGatingSequences(sequences);
+        }
+
+        @Override
+        protected SequenceBarrier newBarrier()
+        {
+            return ringBuffer.newBarrier();
+        }
+
+        @Override
+        protected long getCursor()
+        {
+            return ringBuffer.getCursor();
+        }
+
+        @Override
+        protected Producer newProducer(final int batchSize)
+        {
+            return new Producer()
+            {
+                @Override
+                public void publish(long value)
+                {
+                    fill(ringBuffer.next(batchSize), value);
+                }
+
+                @Override
+                public boolean tryPublish(long value)
+                {
+                    try
+                    {
+                        fill(ringBuffer.tryNext(batchSize), value);
+                        return true;
+                    }
+                    catch (InsufficientCapacityException e)
+                    {
+                        return false;
+                    }
+                }
+
+                private void fill(long hi, long value)
+                {
+                    long lo = hi - (batchSize - 1);
+                    for (long sequence = lo; sequence <= hi; sequence++)
+                    {
+                        ringBuffer.get(sequence).event = new SimpleEvent(value, sequence, sequence, sequence);
+                    }
+                    ringBuffer.publish(lo, hi);
+                }
+            };
+        }
+
+        @Override
+        protected Reader newReader(final boolean take)
+        {
+            return new Reader()
+            {
+                @Override
+                public long read(long sequence)
+                {
+                    EventHolder holder = ringBuffer.get(sequence);
+                    SimpleEvent event = holder.event;
+                    if (take)
+                    {
+                        holder.event = null;
+                    }
+                    return event.getId();
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public void oneToOneProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public void oneToOneConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+
+    @Benchmark
+    @Group("oneToThree")
+    @GroupThreads(1)
+    public void oneToThreeProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("oneToThree")
+    @GroupThreads(3)
+    public void oneToThreeConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+
+    @Benchmark
+    @Group("threeToOne")
+    @GroupThreads(3)
+    public void threeToOneProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("threeToOne")
+    @GroupThreads(1)
+    public void threeToOneConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+}
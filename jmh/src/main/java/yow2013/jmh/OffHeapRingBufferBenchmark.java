@@ -0,0 +1,172 @@
+package yow2013.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import yow2013.offheap.FlyweightAccessor;
+import yow2013.offheap.OffHeapRingBuffer;
+import yow2013.offheap.SimpleEventFlyweight;
+
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * {@link OffHeapRingBuffer}: events written in place through a
+ * {@link SimpleEventFlyweight}, with no allocation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class OffHeapRingBufferBenchmark
+{
+    @State(Scope.Group)
+    public static class Ring extends RingState
+    {
+        private Sequencer sequencer;
+        private OffHeapRingBuffer ringBuffer;
+
+        @Override
+        protected void create(ProducerType producerType, int size, WaitStrategy waitStrategy)
+        {
+            sequencer = newSequencer(producerType, size, waitStrategy);
+            ringBuffer = new OffHeapRingBuffer(sequencer, SimpleEventFlyweight.SIZE);
+        }
+
+        @Override
+        protected void addGatingSequences(Sequence... sequences)
+        {
+            sequencer.addGatingSequences(sequences);
+        }
+
+        @Override
+        protected SequenceBarrier newBarrier()
+        {
+            return sequencer.newBarrier();
+        }
+
+        @Override
+        protected long getCursor()
+        {
+            return sequencer.getCursor();
+        }
+
+        @Override
+        protected Producer newProducer(final int batchSize)
+        {
+            final FlyweightAccessor<SimpleEventFlyweight> writer = ringBuffer.newAccessor(new SimpleEventFlyweight());
+            return new Producer()
+            {
+                @Override
+                public void publish(long value)
+                {
+                    fill(ringBuffer.next(batchSize), value);
+                }
+
+                @Override
+                public boolean tryPublish(long value)
+                {
+                    long hi = tryNext(sequencer, batchSize);
+                    if (hi == Sequencer.INITIAL_CURSOR_VALUE)
+                    {
+                        return false;
+                    }
+                    fill(hi, value);
+                    return true;
+                }
+
+                private void fill(long hi, long value)
+                {
+                    long lo = hi - (batchSize - 1);
+                    for (long sequence = lo; sequence <= hi; sequence++)
+                    {
+                        writer.get(sequence).set(value, sequence, sequence, sequence);
+                    }
+                    ringBuffer.publish(lo, hi);
+                }
+            };
+        }
+
+        @Override
+        protected Reader newReader(boolean take)
+        {
+            final FlyweightAccessor<SimpleEventFlyweight> reader = ringBuffer.newAccessor(new SimpleEventFlyweight());
+            return new Reader()
+            {
+                @Override
+                public long read(long sequence)
+                {
+                    return reader.get(sequence).getId();
+                }
+            };
+        }
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public void oneToOneProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public void oneToOneConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+
+    @Benchmark
+    @Group("oneToThree")
+    @GroupThreads(1)
+    public void oneToThreeProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("oneToThree")
+    @GroupThreads(3)
+    public void oneToThreeConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+
+    @Benchmark
+    @Group("threeToOne")
+    @GroupThreads(3)
+    public void threeToOneProducer(Ring ring, Endpoint endpoint, Counters counters, Control control)
+    {
+        ring.produce(endpoint, counters, control);
+    }
+
+    @Benchmark
+    @Group("threeToOne")
+    @GroupThreads(1)
+    public void threeToOneConsumer(Ring ring, Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        ring.consume(endpoint, counters, control, blackhole);
+    }
+}
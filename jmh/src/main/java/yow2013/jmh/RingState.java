@@ -0,0 +1,183 @@
+package yow2013.jmh;
+
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.Control;
+
+import yow2013.WaitStrategies;
+
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.MultiProducerSequencer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * Group state shared by the producer and consumer threads of one
+ * {@code @Group} benchmark. The topology is taken from the group's thread
+ * counts: methods ending in "Producer" publish and methods ending in
+ * "Consumer" consume. A single producer gets a single-producer sequencer. A
+ * single consumer takes each event; with several consumers every consumer
+ * reads every event and none of them takes it.
+ * <p>
+ * Consumers are polled from the benchmark thread rather than run as event
+ * processors, so they wait through a {@link SequenceBarrier} and the wait
+ * strategy under test. Once measurement stops, producers only try to
+ * publish and consumers only poll, so no thread can block after its peers
+ * have left the group.
+ */
+@State(Scope.Group)
+public abstract class RingState
+{
+    @Param({"1024", "65536"})
+    public int ringSize;
+
+    @Param({"BLOCKING", "YIELDING", "BUSY_SPIN"})
+    public WaitStrategies waitStrategy;
+
+    @Param({"1", "16"})
+    public int batchSize;
+
+    private final AtomicInteger claimed = new AtomicInteger();
+    private Sequence[] consumers;
+    private boolean take;
+
+    public interface Producer
+    {
+        /**
+         * Publishes one batch of {@code batchSize} events.
+         */
+        void publish(long value);
+
+        /**
+         * Publishes one batch if there is capacity for it.
+         */
+        boolean tryPublish(long value);
+    }
+
+    public interface Reader
+    {
+        long read(long sequence);
+    }
+
+    @Setup(Level.Trial)
+    public void setup(BenchmarkParams params)
+    {
+        int producerCount = threads(params, "Producer");
+        int consumerCount = threads(params, "Consumer");
+
+        create(producerCount == 1 ? ProducerType.SINGLE : ProducerType.MULTI, ringSize, waitStrategy.create());
+
+        consumers = new Sequence[consumerCount];
+        for (int i = 0; i < consumerCount; i++)
+        {
+            consumers[i] = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+        }
+        addGatingSequences(consumers);
+        take = consumerCount == 1;
+    }
+
+    protected abstract void create(ProducerType producerType, int size, WaitStrategy waitStrategy);
+
+    protected abstract void addGatingSequences(Sequence... sequences);
+
+    protected abstract SequenceBarrier newBarrier();
+
+    protected abstract long getCursor();
+
+    protected abstract Producer newProducer(int batchSize);
+
+    protected abstract Reader newReader(boolean take);
+
+    protected static Sequencer newSequencer(ProducerType producerType, int size, WaitStrategy waitStrategy)
+    {
+        return producerType == ProducerType.SINGLE ? new SingleProducerSequencer(size, waitStrategy)
+                                                   : new MultiProducerSequencer(size, waitStrategy);
+    }
+
+    protected static long tryNext(Sequencer sequencer, int n)
+    {
+        try
+        {
+            return sequencer.tryNext(n);
+        }
+        catch (InsufficientCapacityException e)
+        {
+            return Sequencer.INITIAL_CURSOR_VALUE;
+        }
+    }
+
+    public final void produce(Endpoint endpoint, Counters counters, Control control)
+    {
+        if (null == endpoint.producer)
+        {
+            endpoint.producer = newProducer(batchSize);
+        }
+
+        long value = endpoint.value++;
+        if (!control.stopMeasurement)
+        {
+            endpoint.producer.publish(value);
+            counters.published += batchSize;
+        }
+        else if (endpoint.producer.tryPublish(value))
+        {
+            counters.published += batchSize;
+        }
+    }
+
+    public final void consume(Endpoint endpoint, Counters counters, Control control, Blackhole blackhole)
+        throws Exception
+    {
+        if (null == endpoint.reader)
+        {
+            endpoint.reader = newReader(take);
+            endpoint.barrier = newBarrier();
+            endpoint.sequence = consumers[claimed.getAndIncrement()];
+        }
+
+        long next = endpoint.sequence.get() + 1;
+        if (control.stopMeasurement && getCursor() < next)
+        {
+            return;
+        }
+
+        long available = endpoint.barrier.waitFor(next);
+        for (long sequence = next; sequence <= available; sequence++)
+        {
+            blackhole.consume(endpoint.reader.read(sequence));
+        }
+
+        if (available >= next)
+        {
+            counters.consumed += available - next + 1;
+            endpoint.sequence.set(available);
+        }
+    }
+
+    private static int threads(BenchmarkParams params, String suffix)
+    {
+        int threads = 0;
+        int[] groups = params.getThreadGroups();
+        Iterator<String> labels = params.getThreadGroupLabels().iterator();
+        for (int i = 0; i < groups.length && labels.hasNext(); i++)
+        {
+            if (labels.next().endsWith(suffix))
+            {
+                threads += groups[i];
+            }
+        }
+        return threads;
+    }
+}
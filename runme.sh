@@ -2,23 +2,28 @@
 
 rm *-gc.log
 
-echo "Running Simple..."
-$JAVA_HOME/bin/java -Xloggc:simple-gc.log \
-     -verbose:gc \
-     -XX:+PrintGCDateStamps \
-     -XX:+PrintGCApplicationStoppedTime \
-     -cp bin:lib/disruptor-3.2.0.jar yow2013.immutable.SimplePerformanceTest
-echo "Done"
+# Tests take wait strategy names (see yow2013.WaitStrategies) and run all of
+# them if none are given; the GC comparison sticks to one.
+run_test() {
+    local name=$1
+    local class=$2
+    shift 2
 
-grep 'stopped:' simple-gc.log | sed 's/.*stopped: \([0-9.]*\) seconds/\1/' | sort -n | awk '{ printf "%1.3f\n", $1 }' | (echo " Count Millis" ; uniq -c )
-     
-echo "Running Custom..."
-$JAVA_HOME/bin/java -Xloggc:custom-gc.log \
-     -verbose:gc \
-     -XX:+PrintGCDateStamps \
-     -XX:+PrintGCApplicationStoppedTime \
-     -cp bin:lib/disruptor-3.2.0.jar yow2013.immutable.CustomPerformanceTest
-echo "Done"
+    echo "Running $name..."
+    $JAVA_HOME/bin/java -Xloggc:$name-gc.log \
+         -verbose:gc \
+         -XX:+PrintGCDateStamps \
+         -XX:+PrintGCApplicationStoppedTime \
+         -cp bin:lib/disruptor-3.2.0.jar $class "$@"
+    echo "Done"
 
-grep 'stopped:' custom-gc.log | sed 's/.*stopped: \([0-9.]*\) seconds/\1/' | sort -n | awk '{ printf "%1.3f\n", $1 }' | (echo " Count Millis" ; uniq -c )
-     
+    grep 'stopped:' $name-gc.log | sed 's/.*stopped: \([0-9.]*\) seconds/\1/' | sort -n | awk '{ printf "%1.3f\n", $1 }' | (echo " Count Millis" ; uniq -c )
+}
+
+run_test simple yow2013.immutable.SimplePerformanceTest YIELDING
+run_test custom yow2013.immutable.CustomPerformanceTest YIELDING
+run_test simple-recycle yow2013.immutable.SimplePerformanceTest YIELDING recycle
+run_test custom-recycle yow2013.immutable.CustomPerformanceTest YIELDING recycle
+run_test custom-range yow2013.immutable.CustomPerformanceTest YIELDING range
+run_test offheap yow2013.offheap.OffHeapPerformanceTest YIELDING
+run_test primitive yow2013.primitive.PrimitivePerformanceTest YIELDING
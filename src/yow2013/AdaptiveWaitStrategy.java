@@ -0,0 +1,151 @@
+package yow2013;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * Spins, then yields, then parks, with the spin and yield phases sized from
+ * a moving average of how long the consumer has had to wait for the next
+ * arrival. When events arrive closer together than the spin limit the
+ * consumer spins for about twice the expected gap; when traffic is sparse
+ * it skips almost straight to parking, backing off from
+ * {@link #MIN_PARK_NANOS} to the park limit.
+ * <p>
+ * A consumer parked on the cursor waits on a condition, and producers only
+ * take the lock to signal it when there is such a consumer. The waiter count
+ * is read after the cursor is written with a lazy set, so a wake-up can be
+ * missed; the park is always bounded, so that costs at most one park
+ * interval. Consumers waiting on another consumer rather than the cursor are
+ * never signalled and park with a timeout only.
+ * <p>
+ * Each consumer thread keeps its own average, and only updates it when it
+ * has had to wait, so a consumer that finds the next event already
+ * published returns without touching it or reading the clock.
+ */
+public final class AdaptiveWaitStrategy implements WaitStrategy
+{
+    static final long MIN_SPIN_NANOS = 1_000L;
+    static final long MIN_YIELD_NANOS = 10_000L;
+    static final long MIN_PARK_NANOS = 10_000L;
+
+    private final long spinLimitNanos;
+    private final long yieldLimitNanos;
+    private final long parkLimitNanos;
+
+    private final Lock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private final ThreadLocal<long[]> expectedGapNanos = new ThreadLocal<long[]>()
+    {
+        @Override
+        protected long[] initialValue()
+        {
+            return new long[] { spinLimitNanos };
+        }
+    };
+
+    public AdaptiveWaitStrategy()
+    {
+        this(10_000L, 100_000L, 1_000_000L, TimeUnit.NANOSECONDS);
+    }
+
+    public AdaptiveWaitStrategy(long spinLimit, long yieldLimit, long parkLimit, TimeUnit units)
+    {
+        this.spinLimitNanos = Math.max(MIN_SPIN_NANOS, units.toNanos(spinLimit));
+        this.yieldLimitNanos = Math.max(MIN_YIELD_NANOS, units.toNanos(yieldLimit));
+        this.parkLimitNanos = Math.max(MIN_PARK_NANOS, units.toNanos(parkLimit));
+    }
+
+    @Override
+    public long waitFor(long sequence, Sequence cursor, Sequence dependentSequence, SequenceBarrier barrier)
+        throws AlertException, InterruptedException
+    {
+        long availableSequence = dependentSequence.get();
+        if (availableSequence >= sequence)
+        {
+            return availableSequence;
+        }
+
+        long[] expected = expectedGapNanos.get();
+        long gap = expected[0];
+        long spinNanos = gap < spinLimitNanos ? Math.min(2 * gap + MIN_SPIN_NANOS, spinLimitNanos) : MIN_SPIN_NANOS;
+        long yieldNanos = spinNanos + (gap < yieldLimitNanos ? Math.min(2 * gap, yieldLimitNanos) : MIN_YIELD_NANOS);
+        long parkNanos = MIN_PARK_NANOS;
+
+        long start = System.nanoTime();
+        while ((availableSequence = dependentSequence.get()) < sequence)
+        {
+            barrier.checkAlert();
+
+            long waited = System.nanoTime() - start;
+            if (waited < spinNanos)
+            {
+                continue;
+            }
+
+            if (waited < yieldNanos)
+            {
+                Thread.yield();
+                continue;
+            }
+
+            park(sequence, cursor, parkNanos);
+            parkNanos = Math.min(parkNanos << 1, parkLimitNanos);
+        }
+
+        expected[0] += ((System.nanoTime() - start) - gap) >> 3;
+
+        return availableSequence;
+    }
+
+    private void park(long sequence, Sequence cursor, long nanos) throws InterruptedException
+    {
+        if (cursor.get() >= sequence)
+        {
+            LockSupport.parkNanos(nanos);
+            return;
+        }
+
+        waiters.getAndIncrement();
+        lock.lock();
+        try
+        {
+            if (cursor.get() < sequence)
+            {
+                published.awaitNanos(nanos);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+            waiters.getAndDecrement();
+        }
+    }
+
+    @Override
+    public void signalAllWhenBlocking()
+    {
+        if (waiters.get() > 0)
+        {
+            lock.lock();
+            try
+            {
+                published.signalAll();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package yow2013;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Per-hop timestamps for events passing through one ring and a chain of
+ * stages consuming it, with a histogram per hop:
+ * <ul>
+ * <li>claim: from before the producer claims a slot to just before it
+ * publishes it, including any wait for capacity;</li>
+ * <li>stage n wake-up: from the event being ready for stage n (published, or
+ * completed by stage n - 1) to stage n's handler being called with it;</li>
+ * <li>stage n handler: from that call to the handler returning;</li>
+ * <li>end to end: from publish to the last stage completing.</li>
+ * </ul>
+ * Timestamps are kept in arrays indexed like the ring's slots, so each
+ * thread writes only its own hops' arrays and histograms and nothing is
+ * allocated per event. A stage must be gated on the previous stage, so that
+ * the timestamps it reads have been written before the event reaches it.
+ */
+public final class LatencyTrace
+{
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private final String name;
+    private final int mask;
+    private final long[] published;
+    private final long[][] completed;
+
+    private final Histogram claim = newHistogram();
+    private final Histogram[] wakeUp;
+    private final Histogram[] handler;
+    private final Histogram endToEnd = newHistogram();
+
+    public LatencyTrace(String name, int bufferSize, int stages)
+    {
+        if (Integer.bitCount(bufferSize) != 1)
+        {
+            throw new IllegalArgumentException("bufferSize must be a power of 2");
+        }
+
+        this.name = name;
+        this.mask = bufferSize - 1;
+        this.published = new long[bufferSize];
+        this.completed = new long[stages][bufferSize];
+        this.wakeUp = new Histogram[stages];
+        this.handler = new Histogram[stages];
+        for (int i = 0; i < stages; i++)
+        {
+            wakeUp[i] = newHistogram();
+            handler[i] = newHistogram();
+        }
+    }
+
+    private static Histogram newHistogram()
+    {
+        return new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+    }
+
+    private static void record(Histogram histogram, long nanos)
+    {
+        histogram.recordValue(Math.max(0L, Math.min(nanos, HIGHEST_TRACKABLE_NANOS)));
+    }
+
+    /**
+     * Called by the producer after writing the event and before publishing
+     * it, with {@link System#nanoTime()} as read before the claim.
+     */
+    public void publishing(long sequence, long claimNanos)
+    {
+        long now = System.nanoTime();
+        published[(int) sequence & mask] = now;
+        record(claim, now - claimNanos);
+    }
+
+    /**
+     * Called by stage {@code stage} when its handler is handed the event.
+     *
+     * @return the time observed, to pass to {@link #completed}.
+     */
+    public long observed(int stage, long sequence)
+    {
+        long now = System.nanoTime();
+        int index = (int) sequence & mask;
+        long ready = 0 == stage ? published[index] : completed[stage - 1][index];
+        record(wakeUp[stage], now - ready);
+        return now;
+    }
+
+    /**
+     * Called by stage {@code stage} when its handler has returned.
+     */
+    public void completed(int stage, long sequence, long observedNanos)
+    {
+        long now = System.nanoTime();
+        int index = (int) sequence & mask;
+        completed[stage][index] = now;
+        record(handler[stage], now - observedNanos);
+        if (stage == completed.length - 1)
+        {
+            record(endToEnd, now - published[index]);
+        }
+    }
+
+    public int getStages()
+    {
+        return completed.length;
+    }
+
+    /**
+     * Resets the histograms. Only call while the ring is idle.
+     */
+    public void reset()
+    {
+        claim.reset();
+        for (int i = 0; i < completed.length; i++)
+        {
+            wakeUp[i].reset();
+            handler[i].reset();
+        }
+        endToEnd.reset();
+    }
+
+    /**
+     * Writes each hop's percentile distribution, in the same format as the
+     * tests' overall histograms.
+     */
+    public void outputPercentileDistribution(PrintStream out, double outputValueUnitScalingRatio)
+    {
+        output(out, "claim", claim, outputValueUnitScalingRatio);
+        for (int i = 0; i < completed.length; i++)
+        {
+            output(out, "stage " + i + " wake-up", wakeUp[i], outputValueUnitScalingRatio);
+            output(out, "stage " + i + " handler", handler[i], outputValueUnitScalingRatio);
+        }
+        output(out, "end to end", endToEnd, outputValueUnitScalingRatio);
+    }
+
+    private void output(PrintStream out, String hop, Histogram histogram, double outputValueUnitScalingRatio)
+    {
+        out.format("%s %s:%n", name, hop);
+        histogram.getHistogramData().outputPercentileDistribution(out, 1, outputValueUnitScalingRatio);
+    }
+}
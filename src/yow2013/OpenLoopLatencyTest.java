@@ -0,0 +1,345 @@
+package yow2013;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import yow2013.immutable.CustomRingBuffer;
+import yow2013.immutable.EventHolder;
+import yow2013.immutable.SimpleEvent;
+import yow2013.offheap.FlyweightAccessor;
+import yow2013.offheap.OffHeapRingBuffer;
+import yow2013.offheap.SimpleEventFlyweight;
+import yow2013.primitive.SimpleEventRingBuffer;
+import yow2013.primitive.SimpleEventView;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WaitStrategy;
+
+/**
+ * Open-loop latency against offered load. The producer publishes on a fixed
+ * schedule of intended send times, whether or not the consumer is keeping
+ * up, and stamps each event with its intended send time. The consumer
+ * records the time from that to when it sees the event. A producer that
+ * falls behind its schedule therefore shows up as latency, rather than as
+ * a quietly lower rate, and no coordinated-omission correction is needed.
+ * <p>
+ * For each ring variant the rate is swept upward until the ring can no
+ * longer sustain it, printing one line per rate: the latency-vs-throughput
+ * curve. Arguments are wait strategy names (see {@link WaitStrategies}) and
+ * optionally "rates=100000,1000000" in events per second.
+ */
+public class OpenLoopLatencyTest
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long[] RATES =
+        {100_000L, 200_000L, 500_000L, 1_000_000L, 2_000_000L, 5_000_000L, 10_000_000L, 20_000_000L};
+    private static final long RUN_SECONDS = 5L;
+    private static final long WARMUP_SECONDS = 2L;
+    private static final double SATURATED = 0.95;
+    private static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final WaitStrategies waitStrategy;
+    private final long[] rates;
+
+    public OpenLoopLatencyTest(WaitStrategies waitStrategy, long[] rates)
+    {
+        this.waitStrategy = waitStrategy;
+        this.rates = rates;
+    }
+
+    /**
+     * Records the latency of each event into the current histogram. Only the
+     * consumer thread records; the histogram is reset by the driver while the
+     * consumer is idle.
+     */
+    private static final class Recorder
+    {
+        private final Histogram histogram = new Histogram(HIGHEST_TRACKABLE_NANOS, 3);
+
+        void record(long intendedNanos)
+        {
+            histogram.recordValue(Math.min(System.nanoTime() - intendedNanos, HIGHEST_TRACKABLE_NANOS));
+        }
+    }
+
+    private abstract static class Variant
+    {
+        protected final Recorder recorder = new Recorder();
+        private BatchEventProcessor<?> processor;
+        private Thread thread;
+        private long published;
+
+        abstract String name();
+
+        abstract BatchEventProcessor<?> create(WaitStrategy waitStrategy);
+
+        abstract void publish(long intendedNanos);
+
+        void start(WaitStrategy waitStrategy)
+        {
+            processor = create(waitStrategy);
+            thread = new Thread(processor, name());
+            thread.start();
+        }
+
+        void send(long intendedNanos)
+        {
+            publish(intendedNanos);
+            published++;
+        }
+
+        boolean caughtUp()
+        {
+            return processor.getSequence().get() == published - 1;
+        }
+
+        void halt() throws InterruptedException
+        {
+            processor.halt();
+            thread.join();
+        }
+    }
+
+    private static final class HolderVariant extends Variant
+    {
+        private RingBuffer<EventHolder> ringBuffer;
+
+        @Override
+        String name()
+        {
+            return "holder";
+        }
+
+        @Override
+        BatchEventProcessor<?> create(WaitStrategy waitStrategy)
+        {
+            ringBuffer = RingBuffer.createSingleProducer(EventHolder.FACTORY, BUFFER_SIZE, waitStrategy);
+            BatchEventProcessor<EventHolder> processor =
+                new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), new EventHandler<EventHolder>()
+                {
+                    @Override
+                    public void onEvent(EventHolder holder, long sequence, boolean endOfBatch)
+                    {
+                        recorder.record(holder.event.getId());
+                        holder.event = null;
+                    }
+                });
+            ringBuffer.addGatingSequences(processor.getSequence());
+            return processor;
+        }
+
+        @Override
+        void publish(long intendedNanos)
+        {
+            long next = ringBuffer.next();
+            ringBuffer.get(next).event = new SimpleEvent(intendedNanos, next, next, next);
+            ringBuffer.publish(next);
+        }
+    }
+
+    private static final class CustomVariant extends Variant
+    {
+        private CustomRingBuffer<SimpleEvent> ringBuffer;
+        private long counter;
+
+        @Override
+        String name()
+        {
+            return "custom";
+        }
+
+        @Override
+        BatchEventProcessor<?> create(WaitStrategy waitStrategy)
+        {
+            ringBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(BUFFER_SIZE, waitStrategy));
+            return ringBuffer.createHandler(new EventHandler<SimpleEvent>()
+            {
+                @Override
+                public void onEvent(SimpleEvent event, long sequence, boolean endOfBatch)
+                {
+                    recorder.record(event.getId());
+                }
+            });
+        }
+
+        @Override
+        void publish(long intendedNanos)
+        {
+            counter++;
+            ringBuffer.put(new SimpleEvent(intendedNanos, counter, counter, counter));
+        }
+    }
+
+    private static final class OffHeapVariant extends Variant
+    {
+        private OffHeapRingBuffer ringBuffer;
+        private FlyweightAccessor<SimpleEventFlyweight> writer;
+
+        @Override
+        String name()
+        {
+            return "offheap";
+        }
+
+        @Override
+        BatchEventProcessor<?> create(WaitStrategy waitStrategy)
+        {
+            ringBuffer = new OffHeapRingBuffer(new SingleProducerSequencer(BUFFER_SIZE, waitStrategy),
+                                               SimpleEventFlyweight.SIZE);
+            writer = ringBuffer.newAccessor(new SimpleEventFlyweight());
+            return ringBuffer.createHandler(new SimpleEventFlyweight(), new EventHandler<SimpleEventFlyweight>()
+            {
+                @Override
+                public void onEvent(SimpleEventFlyweight event, long sequence, boolean endOfBatch)
+                {
+                    recorder.record(event.getId());
+                }
+            });
+        }
+
+        @Override
+        void publish(long intendedNanos)
+        {
+            long next = ringBuffer.next();
+            writer.get(next).set(intendedNanos, next, next, next);
+            ringBuffer.publish(next);
+        }
+    }
+
+    private static final class PrimitiveVariant extends Variant
+    {
+        private SimpleEventRingBuffer ringBuffer;
+        private long counter;
+
+        @Override
+        String name()
+        {
+            return "primitive";
+        }
+
+        @Override
+        BatchEventProcessor<?> create(WaitStrategy waitStrategy)
+        {
+            ringBuffer = new SimpleEventRingBuffer(new SingleProducerSequencer(BUFFER_SIZE, waitStrategy));
+            return ringBuffer.createHandler(new EventHandler<SimpleEventView>()
+            {
+                @Override
+                public void onEvent(SimpleEventView event, long sequence, boolean endOfBatch)
+                {
+                    recorder.record(event.getId());
+                }
+            });
+        }
+
+        @Override
+        void publish(long intendedNanos)
+        {
+            counter++;
+            ringBuffer.put(intendedNanos, counter, counter, counter);
+        }
+    }
+
+    public void run() throws InterruptedException
+    {
+        Variant[] variants = {new HolderVariant(), new CustomVariant(), new OffHeapVariant(), new PrimitiveVariant()};
+        for (Variant variant : variants)
+        {
+            variant.start(waitStrategy.create());
+            try
+            {
+                pass(variant, rates[0], WARMUP_SECONDS);
+
+                for (long rate : rates)
+                {
+                    double achieved = pass(variant, rate, RUN_SECONDS);
+                    report(variant, rate, achieved);
+                    if (achieved < SATURATED * rate)
+                    {
+                        break;
+                    }
+                }
+            }
+            finally
+            {
+                variant.halt();
+            }
+        }
+    }
+
+    /**
+     * Publishes at {@code rate} for {@code seconds} and waits for the
+     * consumer to catch up.
+     *
+     * @return the rate actually achieved, from the first intended send time
+     * to the last event being consumed.
+     */
+    private static double pass(Variant variant, long rate, long seconds)
+    {
+        variant.recorder.histogram.reset();
+
+        long count = rate * seconds;
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(1);
+        for (long i = 0; i < count; i++)
+        {
+            long intended = start + (i * TimeUnit.SECONDS.toNanos(1)) / rate;
+            while (System.nanoTime() < intended)
+            {
+                // spin to the schedule
+            }
+            variant.send(intended);
+        }
+
+        while (!variant.caughtUp())
+        {
+            Thread.yield();
+        }
+
+        return (count * (double) TimeUnit.SECONDS.toNanos(1)) / (System.nanoTime() - start);
+    }
+
+    private void report(Variant variant, long rate, double achieved)
+    {
+        Histogram histogram = variant.recorder.histogram;
+        System.out.format("%s %s %s rate %,d/s achieved %,.0f/s p50 %.1f p90 %.1f p99 %.1f p99.9 %.1f p99.99 %.1f max %.1f us%n",
+                          getClass().getSimpleName(), variant.name(), waitStrategy, rate, achieved,
+                          micros(histogram, 50.0), micros(histogram, 90.0), micros(histogram, 99.0),
+                          micros(histogram, 99.9), micros(histogram, 99.99),
+                          histogram.getHistogramData().getMaxValue() / 1000.0);
+    }
+
+    private static double micros(Histogram histogram, double percentile)
+    {
+        return histogram.getHistogramData().getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static long[] ratesFromArgs(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith("rates="))
+            {
+                String[] values = arg.substring("rates=".length()).split(",");
+                long[] rates = new long[values.length];
+                for (int i = 0; i < values.length; i++)
+                {
+                    rates[i] = Long.parseLong(values[i].trim());
+                }
+                return rates;
+            }
+        }
+        return RATES;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        long[] rates = ratesFromArgs(args);
+        for (WaitStrategies waitStrategy : WaitStrategies.fromArgs(args))
+        {
+            new OpenLoopLatencyTest(waitStrategy, rates).run();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package yow2013;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Per-thread CPU time from the {@link ThreadMXBean}, in nanoseconds. Zero
+ * where the JVM does not support it.
+ */
+public final class ThreadCpuTime
+{
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private ThreadCpuTime()
+    {
+    }
+
+    public static long current()
+    {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0L;
+    }
+
+    public static long of(Thread thread)
+    {
+        return THREADS.isThreadCpuTimeSupported() ? Math.max(0L, THREADS.getThreadCpuTime(thread.getId())) : 0L;
+    }
+
+    /**
+     * Formats CPU time as milliseconds and as the number of cores kept busy
+     * over {@code wallNanos}.
+     */
+    public static String format(long cpuNanos, long wallNanos)
+    {
+        return String.format("%,d ms cpu (%.2f cores)", cpuNanos / 1_000_000L, (double) cpuNanos / wallNanos);
+    }
+}
@@ -0,0 +1,54 @@
+package yow2013;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+
+/**
+ * Timestamps one stage of a {@link LatencyTrace} around a delegate handler.
+ */
+public class TracingEventHandler<T> implements EventHandler<T>, LifecycleAware
+{
+    private final LatencyTrace trace;
+    private final int stage;
+    private final EventHandler<T> delegate;
+    private final LifecycleAware lifecycle;
+
+    public TracingEventHandler(LatencyTrace trace, int stage, EventHandler<T> delegate)
+    {
+        if (stage < 0 || stage >= trace.getStages())
+        {
+            throw new IllegalArgumentException("No stage " + stage + " in trace");
+        }
+
+        this.trace = trace;
+        this.stage = stage;
+        this.delegate = delegate;
+        this.lifecycle = delegate instanceof LifecycleAware ? (LifecycleAware) delegate : null;
+    }
+
+    @Override
+    public void onEvent(T event, long sequence, boolean endOfBatch) throws Exception
+    {
+        long observed = trace.observed(stage, sequence);
+        delegate.onEvent(event, sequence, endOfBatch);
+        trace.completed(stage, sequence, observed);
+    }
+
+    @Override
+    public void onStart()
+    {
+        if (null != lifecycle)
+        {
+            lifecycle.onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown()
+    {
+        if (null != lifecycle)
+        {
+            lifecycle.onShutdown();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package yow2013;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.PhasedBackoffWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * The wait strategies the tests and benchmarks can be run with, by name.
+ * There is no lite-locking strategy in this Disruptor version, so
+ * PHASED_BACKOFF falls back to the blocking strategy's lock.
+ */
+public enum WaitStrategies
+{
+    BLOCKING
+    {
+        @Override
+        public WaitStrategy create()
+        {
+            return new BlockingWaitStrategy();
+        }
+    },
+    SLEEPING
+    {
+        @Override
+        public WaitStrategy create()
+        {
+            return new SleepingWaitStrategy();
+        }
+    },
+    YIELDING
+    {
+        @Override
+        public WaitStrategy create()
+        {
+            return new YieldingWaitStrategy();
+        }
+    },
+    BUSY_SPIN
+    {
+        @Override
+        public WaitStrategy create()
+        {
+            return new BusySpinWaitStrategy();
+        }
+    },
+    PHASED_BACKOFF
+    {
+        @Override
+        public WaitStrategy create()
+        {
+            return PhasedBackoffWaitStrategy.withLock(1, 1000, TimeUnit.MICROSECONDS);
+        }
+    },
+    ADAPTIVE
+    {
+        @Override
+        public WaitStrategy create()
+        {
+            return new AdaptiveWaitStrategy();
+        }
+    };
+
+    public abstract WaitStrategy create();
+
+    /**
+     * The strategies named in {@code args}, ignoring any other arguments, or
+     * all of them if none are named.
+     */
+    public static List<WaitStrategies> fromArgs(String[] args)
+    {
+        List<WaitStrategies> strategies = new ArrayList<>();
+        for (String arg : args)
+        {
+            for (WaitStrategies strategy : values())
+            {
+                if (strategy.name().equalsIgnoreCase(arg))
+                {
+                    strategies.add(strategy);
+                }
+            }
+        }
+        return strategies.isEmpty() ? Arrays.asList(values()) : strategies;
+    }
+}
@@ -0,0 +1,36 @@
+package yow2013.basic;
+
+import com.lmax.disruptor.Sequence;
+
+/**
+ * How far a move must have got into the {@link PlayerMoveJournal} before
+ * {@link PlayerHandler} may apply it.
+ */
+public enum Durability
+{
+    /**
+     * The journaller runs alongside the handler without gating it, so moves
+     * already applied can be missing from the journal after a crash.
+     */
+    NONE,
+
+    /**
+     * The move has been written to the mapped journal, which survives the
+     * process dying but not the machine.
+     */
+    WRITTEN,
+
+    /**
+     * The move's batch has been forced to the storage device.
+     */
+    SYNCED;
+
+    /**
+     * The sequences the player handler's barrier must wait for, given the
+     * journaller's sequence.
+     */
+    public Sequence[] dependencies(Sequence journaller)
+    {
+        return this == NONE ? new Sequence[0] : new Sequence[] { journaller };
+    }
+}
@@ -0,0 +1,237 @@
+package yow2013.basic;
+
+/**
+ * Open-addressing map from primitive {@code long} keys to non-null values,
+ * with linear probing over parallel key and value arrays. Lookups and
+ * updates of existing keys never allocate or box.
+ * <p>
+ * Growing doubles the table but does not rehash it in one go: the old table
+ * is kept, and every {@link #get} or {@link #put} moves the next
+ * {@link #MIGRATE_STEP} of its slots into the new one. Until that finishes,
+ * a key missing from the new table is looked up in the old one, and a key
+ * already in the new table is never copied over it. {@link #remove}
+ * completes any migration first, since it is off the hot path.
+ * <p>
+ * Not thread safe; it is meant to be owned by a single consumer thread.
+ */
+public class LongHashMap<V>
+{
+    private static final int MIGRATE_STEP = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int resizeAt;
+    private int size;
+
+    private long[] oldKeys;
+    private Object[] oldValues;
+    private int oldMask;
+    private int migrated;
+
+    public LongHashMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param expectedSize number of entries to size the table for, so that
+     *            a map that never exceeds it never grows.
+     */
+    public LongHashMap(int expectedSize)
+    {
+        int capacity = Integer.highestOneBit(Math.max(2, (int) Math.ceil(expectedSize / LOAD_FACTOR)) - 1) << 1;
+        allocate(capacity);
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return 0 == size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key)
+    {
+        migrate();
+
+        int index = find(keys, values, mask, key);
+        if (index >= 0)
+        {
+            return (V) values[index];
+        }
+        if (null != oldValues)
+        {
+            index = find(oldKeys, oldValues, oldMask, key);
+            if (index >= 0)
+            {
+                return (V) oldValues[index];
+            }
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key)
+    {
+        return null != get(key);
+    }
+
+    /**
+     * @return the previous value for {@code key}, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value)
+    {
+        if (null == value)
+        {
+            throw new NullPointerException("Null values are not supported");
+        }
+
+        migrate();
+
+        int index = slot(keys, values, mask, key);
+        Object previous = values[index];
+        if (null == previous && null != oldValues)
+        {
+            int oldIndex = find(oldKeys, oldValues, oldMask, key);
+            previous = oldIndex >= 0 ? oldValues[oldIndex] : null;
+        }
+
+        keys[index] = key;
+        values[index] = value;
+        if (null == previous && ++size > resizeAt)
+        {
+            grow();
+        }
+
+        return (V) previous;
+    }
+
+    /**
+     * @return the value removed, or null if there was none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key)
+    {
+        finishMigration();
+
+        int index = find(keys, values, mask, key);
+        if (index < 0)
+        {
+            return null;
+        }
+
+        Object previous = values[index];
+        values[index] = null;
+        size--;
+
+        // shift later entries of the probe sequence back into the gap
+        int gap = index;
+        for (int i = (index + 1) & mask; null != values[i]; i = (i + 1) & mask)
+        {
+            int home = hash(keys[i]) & mask;
+            if (((i - home) & mask) >= ((i - gap) & mask))
+            {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                values[i] = null;
+                gap = i;
+            }
+        }
+
+        return (V) previous;
+    }
+
+    private void allocate(int capacity)
+    {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private void grow()
+    {
+        finishMigration();
+
+        oldKeys = keys;
+        oldValues = values;
+        oldMask = mask;
+        migrated = 0;
+        allocate(keys.length << 1);
+    }
+
+    private void migrate()
+    {
+        if (null != oldValues)
+        {
+            migrate(Math.min(migrated + MIGRATE_STEP, oldValues.length));
+        }
+    }
+
+    private void finishMigration()
+    {
+        if (null != oldValues)
+        {
+            migrate(oldValues.length);
+        }
+    }
+
+    private void migrate(int end)
+    {
+        for (int i = migrated; i < end; i++)
+        {
+            Object value = oldValues[i];
+            if (null != value)
+            {
+                int index = slot(keys, values, mask, oldKeys[i]);
+                if (null == values[index])
+                {
+                    keys[index] = oldKeys[i];
+                    values[index] = value;
+                }
+            }
+        }
+
+        migrated = end;
+        if (end == oldValues.length)
+        {
+            oldKeys = null;
+            oldValues = null;
+        }
+    }
+
+    /**
+     * @return the index holding {@code key}, or -1.
+     */
+    private static int find(long[] keys, Object[] values, int mask, long key)
+    {
+        int index = slot(keys, values, mask, key);
+        return null != values[index] ? index : -1;
+    }
+
+    /**
+     * @return the index holding {@code key}, or the empty slot where it
+     *         belongs.
+     */
+    private static int slot(long[] keys, Object[] values, int mask, long key)
+    {
+        int index = hash(key) & mask;
+        while (null != values[index] && keys[index] != key)
+        {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int hash(long key)
+    {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
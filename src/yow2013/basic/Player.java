@@ -0,0 +1,40 @@
+package yow2013.basic;
+
+class Player
+{
+    final long id;
+    long x;
+    long y;
+
+    // owned by the WorldPublisher, if any
+    int slot = -1;
+    boolean dirty;
+
+    Player(long id)
+    {
+        this.id = id;
+    }
+
+    /**
+     * Moves {@code distance} north, east, south or west for a
+     * {@code direction} of 0 to 3.
+     */
+    void move(long direction, long distance)
+    {
+        switch ((int) (direction & 3))
+        {
+        case 0:
+            y += distance;
+            break;
+        case 1:
+            x += distance;
+            break;
+        case 2:
+            y -= distance;
+            break;
+        default:
+            x -= distance;
+            break;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package yow2013.basic;
+
+import com.lmax.disruptor.EventHandler;
+
+/**
+ * Applies moves to the players it owns. With several shards, one handler per
+ * shard consumes the same ring and applies only the moves whose id maps to
+ * its shard, so each player is still updated in order by a single thread.
+ * Given a {@link WorldPublisher}, it also publishes snapshots of its players
+ * for other threads to read.
+ */
+class PlayerHandler 
+implements EventHandler<PlayerMove>
+{
+    private final LongHashMap<Player> players = new LongHashMap<>();
+    private final int shard;
+    private final int shards;
+    private final WorldPublisher world;
+
+    PlayerHandler()
+    {
+        this(0, 1);
+    }
+
+    PlayerHandler(int shard, int shards)
+    {
+        this(shard, shards, null);
+    }
+
+    PlayerHandler(int shard, int shards, WorldPublisher world)
+    {
+        if (shard < 0 || shard >= shards)
+        {
+            throw new IllegalArgumentException("No shard " + shard + " of " + shards);
+        }
+        this.shard = shard;
+        this.shards = shards;
+        this.world = world;
+    }
+
+    public void onEvent(PlayerMove event,
+                        long sequence, 
+                        boolean onBatchEnd) throws Exception
+    {
+        if (shards == 1 || shardOf(event.id, shards) == shard)
+        {
+            Player player = findPlayer(event.id);
+            player.move(event.direction, event.distance);
+            if (null != world)
+            {
+                world.changed(player);
+            }
+        }
+
+        if (onBatchEnd && null != world)
+        {
+            world.endOfBatch(sequence);
+        }
+    }
+    
+    static int shardOf(long id, int shards)
+    {
+        long h = id * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) ((h & Long.MAX_VALUE) % shards);
+    }
+
+    int getPlayerCount()
+    {
+        return players.size();
+    }
+
+    boolean hasPlayer(long id)
+    {
+        return players.containsKey(id);
+    }
+    
+    Player findPlayer(long id)
+    {
+        Player player = players.get(id);
+        if (null == player)
+        {
+            player = new Player(id);
+            players.put(id, player);
+            if (null != world)
+            {
+                world.add(player);
+            }
+        }
+        return player;
+    }
+}
@@ -0,0 +1,147 @@
+package yow2013.basic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Throughput of {@link PlayerHandler} with a {@link PlayerMoveJournaller}
+ * beside it at each {@link Durability}, then the rate at which the journal
+ * replays into a fresh handler, checking that the replayed world matches.
+ * Journals go in a temporary directory, or the one given as an argument,
+ * and are deleted afterwards.
+ */
+public class PlayerJournalBenchmark
+{
+    private static final int SIZE = 1 << 16;
+    private static final long ITERATIONS = 10_000_000L;
+    private static final int PLAYERS = 100_000;
+    private static final int SEGMENT_SIZE = 64 << 20;
+
+    private final File root;
+
+    public PlayerJournalBenchmark(File root)
+    {
+        this.root = root;
+    }
+
+    public void run() throws Exception
+    {
+        for (Durability durability : Durability.values())
+        {
+            File directory = new File(root, durability.name().toLowerCase());
+            try
+            {
+                run(durability, directory);
+            }
+            finally
+            {
+                delete(directory);
+            }
+        }
+    }
+
+    private void run(Durability durability, File directory) throws Exception
+    {
+        PlayerMoveJournal journal = new PlayerMoveJournal(directory, SEGMENT_SIZE);
+        RingBuffer<PlayerMove> ringBuffer =
+            RingBuffer.createSingleProducer(new PlayerMoveFactory(), SIZE, new YieldingWaitStrategy());
+
+        PlayerHandler handler = new PlayerHandler();
+        BatchEventProcessor<PlayerMove> journaller =
+            new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), new PlayerMoveJournaller(journal, durability));
+        BatchEventProcessor<PlayerMove> players =
+            new BatchEventProcessor<>(ringBuffer,
+                                      ringBuffer.newBarrier(durability.dependencies(journaller.getSequence())),
+                                      handler);
+        ringBuffer.addGatingSequences(journaller.getSequence(), players.getSequence());
+
+        Thread journalThread = new Thread(journaller);
+        Thread playerThread = new Thread(players);
+        journalThread.start();
+        playerThread.start();
+
+        long start = System.nanoTime();
+
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            long next = ringBuffer.next();
+            PlayerMove move = ringBuffer.get(next);
+            move.id = l % PLAYERS;
+            move.direction = l;
+            move.distance = l & 7;
+            ringBuffer.publish(next);
+        }
+
+        while (journaller.getSequence().get() < ITERATIONS - 1 || players.getSequence().get() < ITERATIONS - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - start;
+
+        journaller.halt();
+        players.halt();
+        journalThread.join();
+        playerThread.join();
+
+        PlayerHandler replayed = new PlayerHandler();
+        start = System.nanoTime();
+        long count = new PlayerMoveJournal(directory, SEGMENT_SIZE).replay(replayed);
+        long replayDuration = System.nanoTime() - start;
+
+        if (count != ITERATIONS)
+        {
+            throw new IllegalStateException("Replayed " + count + " moves, expected " + ITERATIONS);
+        }
+        for (long id = 0; id < PLAYERS; id++)
+        {
+            Player live = handler.findPlayer(id);
+            Player recovered = replayed.findPlayer(id);
+            if (live.x != recovered.x || live.y != recovered.y)
+            {
+                throw new IllegalStateException("Player " + id + " differs after replay");
+            }
+        }
+
+        System.out.format("%s %s %,d ops/sec, replay %,d ops/sec (%,d ms)%n", getClass().getSimpleName(), durability,
+                          (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / replayDuration,
+                          TimeUnit.NANOSECONDS.toMillis(replayDuration));
+    }
+
+    private static void delete(File directory)
+    {
+        File[] files = directory.listFiles();
+        if (null != files)
+        {
+            for (File file : files)
+            {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        File root = args.length > 0 ? new File(args[0]) : Files.createTempDirectory("journal").toFile();
+        try
+        {
+            new PlayerJournalBenchmark(root).run();
+        }
+        finally
+        {
+            if (0 == args.length)
+            {
+                root.delete();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package yow2013.basic;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Random lookup throughput of {@link LongHashMap} against a boxed
+ * {@code HashMap<Long, Player>} at 10k, 1M and 10M players, or at the
+ * player counts given as arguments. 10M players needs a heap of around 2GB
+ * for the two maps.
+ */
+public class PlayerLookupBenchmark
+{
+    private static final long LOOKUPS = 50_000_000L;
+    private static final int RUNS = 3;
+
+    private long sink;
+
+    private static long idOf(long index)
+    {
+        // bijective, so ids are distinct and scattered like real ones
+        long h = (index + 1) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    public void run(int players)
+    {
+        LongHashMap<Player> longMap = new LongHashMap<>();
+        Map<Long, Player> boxedMap = new HashMap<>();
+        for (int i = 0; i < players; i++)
+        {
+            Player player = new Player(idOf(i));
+            longMap.put(idOf(i), player);
+            boxedMap.put(idOf(i), player);
+        }
+
+        for (int run = 0; run < RUNS; run++)
+        {
+            long start = System.nanoTime();
+            sink += lookup(longMap, players);
+            long longDuration = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            sink += lookup(boxedMap, players);
+            long boxedDuration = System.nanoTime() - start;
+
+            System.out.format("%s players=%,d LongHashMap %,d ops/sec, HashMap %,d ops/sec%n",
+                              getClass().getSimpleName(), players,
+                              (LOOKUPS * TimeUnit.SECONDS.toNanos(1)) / longDuration,
+                              (LOOKUPS * TimeUnit.SECONDS.toNanos(1)) / boxedDuration);
+        }
+    }
+
+    private static long lookup(LongHashMap<Player> map, int players)
+    {
+        long found = 0;
+        long x = 1;
+        for (long l = 0; l < LOOKUPS; l++)
+        {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            if (null != map.get(idOf((x & Long.MAX_VALUE) % players)))
+            {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private static long lookup(Map<Long, Player> map, int players)
+    {
+        long found = 0;
+        long x = 1;
+        for (long l = 0; l < LOOKUPS; l++)
+        {
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            if (null != map.get(idOf((x & Long.MAX_VALUE) % players)))
+            {
+                found++;
+            }
+        }
+        return found;
+    }
+
+    public static void main(String[] args)
+    {
+        int[] players = { 10_000, 1_000_000, 10_000_000 };
+        if (args.length > 0)
+        {
+            players = new int[args.length];
+            for (int i = 0; i < args.length; i++)
+            {
+                players[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        PlayerLookupBenchmark benchmark = new PlayerLookupBenchmark();
+        for (int n : players)
+        {
+            benchmark.run(n);
+        }
+        System.out.println(benchmark.sink);
+    }
+}
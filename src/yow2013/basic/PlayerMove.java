@@ -2,10 +2,7 @@ package yow2013.basic;
 
 import java.nio.ByteBuffer;
 
-import com.lmax.disruptor.EventFactory;
-import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.EventTranslator;
-import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.RingBuffer;
 
 class PlayerMove
@@ -15,38 +12,6 @@ class PlayerMove
     long distance;
 }
 
-class PlayerMoveFactory implements EventFactory<PlayerMove>
-{
-    public PlayerMove newInstance()
-    {
-        return new PlayerMove();
-    }
-}
-
-class PlayerHandler 
-implements EventHandler<PlayerMove>
-{
-    public void onEvent(PlayerMove event,
-                        long sequence, 
-                        boolean onBatchEnd) throws Exception
-    {
-        Player player = findPlayer(event.id);
-        player.move(event.direction, event.distance);
-    }
-    
-    Player findPlayer(long id)
-    {
-        return null;
-    }
-}
-
-class Player
-{
-    void move(long direction, long distance)
-    {
-    }
-}
-
 class NetworkHandler
 {
     void handle(ByteBuffer packet)
@@ -90,19 +55,6 @@ class NetworkHandler2
     }
 }
 
-class PlayerMoveTranslator implements EventTranslatorOneArg<PlayerMove, ByteBuffer>
-{
-    public static final PlayerMoveTranslator INSTANCE = new PlayerMoveTranslator();
-    
-    @Override
-    public void translateTo(PlayerMove playerMove, long seq, ByteBuffer packet)
-    {
-        playerMove.id = packet.getLong();
-        playerMove.direction = packet.getLong();
-        playerMove.distance = packet.getLong();
-    }
-}
-
 class NetworkHandler3
 {
     void handle(final ByteBuffer packet)
@@ -0,0 +1,11 @@
+package yow2013.basic;
+
+import com.lmax.disruptor.EventFactory;
+
+class PlayerMoveFactory implements EventFactory<PlayerMove>
+{
+    public PlayerMove newInstance()
+    {
+        return new PlayerMove();
+    }
+}
@@ -0,0 +1,183 @@
+package yow2013.basic;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.lmax.disruptor.EventHandler;
+
+/**
+ * Append-only journal of {@link PlayerMove}s in a directory of fixed-size,
+ * memory-mapped segment files. Each record is {@link #RECORD_SIZE} bytes:
+ * its 1-based entry number, then id, direction and distance. The entry
+ * number is written last, so a record torn by the process dying reads as
+ * the end of the journal.
+ * <p>
+ * Appends are plain stores into the mapped segment, so they survive the
+ * process dying as soon as they are made; {@link #force()} is only needed
+ * to survive losing the machine. A full segment is forced before the next
+ * one is started.
+ * <p>
+ * Opening an existing journal positions it after its last record. Replay
+ * it before appending.
+ */
+public class PlayerMoveJournal
+{
+    public static final int RECORD_SIZE = 4 * 8;
+
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".dat";
+
+    private final File directory;
+    private final int segmentSize;
+    private final int recordsPerSegment;
+
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private long entries;
+
+    public PlayerMoveJournal(File directory, int segmentSize) throws IOException
+    {
+        if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0)
+        {
+            throw new IllegalArgumentException("segmentSize must be a positive multiple of " + RECORD_SIZE);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs())
+        {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.recordsPerSegment = segmentSize / RECORD_SIZE;
+
+        segmentIndex = Math.max(0, lastSegment());
+        segment = map(segmentIndex, MapMode.READ_WRITE);
+        int records = recordsIn(segment);
+        segment.position(records * RECORD_SIZE);
+        entries = (long) segmentIndex * recordsPerSegment + records;
+    }
+
+    /**
+     * Called by the journalling thread only.
+     */
+    public void append(PlayerMove move) throws IOException
+    {
+        if (!segment.hasRemaining())
+        {
+            roll();
+        }
+
+        int position = segment.position();
+        segment.putLong(position + 8, move.id);
+        segment.putLong(position + 16, move.direction);
+        segment.putLong(position + 24, move.distance);
+        segment.putLong(position, ++entries);
+        segment.position(position + RECORD_SIZE);
+    }
+
+    public void force()
+    {
+        segment.force();
+    }
+
+    /**
+     * Number of records in the journal.
+     */
+    public long getEntries()
+    {
+        return entries;
+    }
+
+    /**
+     * Feeds every journalled move, in order, straight to {@code handler}
+     * without a ring in between. The move passed is reused between calls.
+     * endOfBatch is set on the last move of each segment.
+     *
+     * @return the number of moves replayed.
+     */
+    public long replay(EventHandler<PlayerMove> handler) throws Exception
+    {
+        PlayerMove move = new PlayerMove();
+        long replayed = 0;
+        for (int index = 0; index <= segmentIndex && replayed < entries; index++)
+        {
+            MappedByteBuffer records = map(index, MapMode.READ_ONLY);
+            int count = (int) Math.min(recordsPerSegment, entries - replayed);
+            for (int i = 0; i < count; i++)
+            {
+                int position = i * RECORD_SIZE;
+                move.id = records.getLong(position + 8);
+                move.direction = records.getLong(position + 16);
+                move.distance = records.getLong(position + 24);
+                handler.onEvent(move, replayed++, i == count - 1);
+            }
+        }
+        return replayed;
+    }
+
+    private void roll() throws IOException
+    {
+        segment.force();
+        segment = map(++segmentIndex, MapMode.READ_WRITE);
+    }
+
+    private int recordsIn(MappedByteBuffer records)
+    {
+        int count = 0;
+        while (count < recordsPerSegment && 0 != records.getLong(count * RECORD_SIZE))
+        {
+            count++;
+        }
+        return count;
+    }
+
+    private MappedByteBuffer map(int index, MapMode mode) throws IOException
+    {
+        File file = new File(directory, String.format("%s%08d%s", PREFIX, index, SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file, mode == MapMode.READ_ONLY ? "r" : "rw");
+             FileChannel channel = raf.getChannel())
+        {
+            if (raf.length() > 0 && raf.length() != segmentSize)
+            {
+                throw new IOException("Journal segment " + file + " has length " + raf.length()
+                                      + ", expected " + segmentSize);
+            }
+            if (mode != MapMode.READ_ONLY)
+            {
+                raf.setLength(segmentSize);
+            }
+            return channel.map(mode, 0, segmentSize);
+        }
+    }
+
+    private int lastSegment()
+    {
+        String[] names = directory.list(new FilenameFilter()
+        {
+            @Override
+            public boolean accept(File dir, String name)
+            {
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }
+        });
+
+        int last = -1;
+        for (String name : names)
+        {
+            try
+            {
+                last = Math.max(last, Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+            }
+            catch (NumberFormatException e)
+            {
+                // not one of ours
+            }
+        }
+        return last;
+    }
+}
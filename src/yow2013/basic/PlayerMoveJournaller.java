@@ -0,0 +1,32 @@
+package yow2013.basic;
+
+import com.lmax.disruptor.EventHandler;
+
+/**
+ * Consumer that appends every move to a {@link PlayerMoveJournal}, forcing
+ * it at the end of each batch if the durability level is
+ * {@link Durability#SYNCED}. It reads the same ring as
+ * {@link PlayerHandler}, which is gated on it according to
+ * {@link Durability#dependencies}.
+ */
+class PlayerMoveJournaller implements EventHandler<PlayerMove>
+{
+    private final PlayerMoveJournal journal;
+    private final boolean sync;
+
+    PlayerMoveJournaller(PlayerMoveJournal journal, Durability durability)
+    {
+        this.journal = journal;
+        this.sync = durability == Durability.SYNCED;
+    }
+
+    @Override
+    public void onEvent(PlayerMove move, long sequence, boolean endOfBatch) throws Exception
+    {
+        journal.append(move);
+        if (endOfBatch && sync)
+        {
+            journal.force();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package yow2013.basic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.util.Arrays;
+
+import com.lmax.disruptor.RingBuffer;
+
+/**
+ * Ingest loop that receives {@link PlayerMove}s over UDP and publishes them
+ * to a ring. A datagram carries any number of moves back to back, each
+ * {@link #MOVE_SIZE} bytes of id, direction and distance; any trailing
+ * partial move is dropped.
+ * <p>
+ * Datagrams are received into one reused direct buffer, and all of a
+ * datagram's moves are published with a single
+ * {@link RingBuffer#publishEvents} call, so each datagram costs one claim and
+ * one publish and nothing is allocated per packet. The argument array that
+ * call needs simply repeats the packet buffer, which
+ * {@link PlayerMoveTranslator} reads a move at a time.
+ * <p>
+ * Must be the only producer on a single-producer ring.
+ */
+public class PlayerMoveReceiver implements Runnable
+{
+    public static final int MOVE_SIZE = 3 * 8;
+
+    private final DatagramChannel channel;
+    private final RingBuffer<PlayerMove> ringBuffer;
+    private final ByteBuffer packet;
+    private final ByteBuffer[] moves;
+    private volatile boolean running = true;
+
+    private long packets;
+
+    PlayerMoveReceiver(DatagramChannel channel, RingBuffer<PlayerMove> ringBuffer, int maxPacketSize)
+        throws IOException
+    {
+        int maxMoves = maxPacketSize / MOVE_SIZE;
+        if (maxMoves < 1 || maxMoves > ringBuffer.getBufferSize())
+        {
+            throw new IllegalArgumentException("Packets must hold between 1 and " + ringBuffer.getBufferSize()
+                                               + " moves");
+        }
+
+        channel.configureBlocking(false);
+        this.channel = channel;
+        this.ringBuffer = ringBuffer;
+        this.packet = ByteBuffer.allocateDirect(maxPacketSize).order(ByteOrder.BIG_ENDIAN);
+        this.moves = new ByteBuffer[maxMoves];
+        Arrays.fill(moves, packet);
+    }
+
+    /**
+     * Writes one move into a packet being built by a sender.
+     */
+    public static void encode(ByteBuffer packet, long id, long direction, long distance)
+    {
+        packet.putLong(id);
+        packet.putLong(direction);
+        packet.putLong(distance);
+    }
+
+    /**
+     * Receives and publishes at most one datagram.
+     *
+     * @return the number of moves published, 0 if no datagram was waiting.
+     */
+    public int poll() throws IOException
+    {
+        packet.clear();
+        if (null == channel.receive(packet))
+        {
+            return 0;
+        }
+        packet.flip();
+        packets++;
+
+        int count = packet.remaining() / MOVE_SIZE;
+        if (count > 0)
+        {
+            ringBuffer.publishEvents(PlayerMoveTranslator.INSTANCE, 0, count, moves);
+        }
+        return count;
+    }
+
+    /**
+     * Polls until {@link #halt()}, spinning while no datagram is waiting.
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            while (running)
+            {
+                poll();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public void halt()
+    {
+        running = false;
+    }
+
+    /**
+     * Datagrams received so far; only accurate on the receiving thread or
+     * once it has stopped.
+     */
+    public long getPackets()
+    {
+        return packets;
+    }
+}
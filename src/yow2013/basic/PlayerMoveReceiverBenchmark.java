@@ -0,0 +1,153 @@
+package yow2013.basic;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.concurrent.TimeUnit;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Packets per second and bytes allocated per packet for a
+ * {@link PlayerMoveReceiver} fed over loopback by a sender thread, with a
+ * {@link PlayerHandler} consuming the moves. Datagrams the receiver cannot
+ * keep up with are dropped by the kernel, so the packet rate is what the
+ * receiver actually handled.
+ */
+public class PlayerMoveReceiverBenchmark
+{
+    private static final int SIZE = 1 << 16;
+    private static final int MOVES_PER_PACKET = 32;
+    private static final int PLAYERS = 100_000;
+    private static final long WARMUP_MILLIS = 2_000;
+    private static final long RUN_MILLIS = 10_000;
+
+    private volatile boolean sending = true;
+
+    public void run() throws Exception
+    {
+        RingBuffer<PlayerMove> ringBuffer =
+            RingBuffer.createSingleProducer(new PlayerMoveFactory(), SIZE, new YieldingWaitStrategy());
+        BatchEventProcessor<PlayerMove> processor =
+            new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), new PlayerHandler());
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        final DatagramChannel receiveChannel = DatagramChannel.open().bind(new InetSocketAddress(loopback, 0));
+        final DatagramChannel sendChannel = DatagramChannel.open().connect(receiveChannel.getLocalAddress());
+        final PlayerMoveReceiver receiver =
+            new PlayerMoveReceiver(receiveChannel, ringBuffer, MOVES_PER_PACKET * PlayerMoveReceiver.MOVE_SIZE);
+
+        Thread consumer = new Thread(processor);
+        Thread sender = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                send(sendChannel);
+            }
+        };
+        final long[] result = new long[3];
+        Thread receiving = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                measure(receiver, result);
+            }
+        };
+        consumer.start();
+        sender.start();
+        receiving.start();
+
+        receiving.join();
+        sending = false;
+        sender.join();
+        processor.halt();
+        consumer.join();
+        sendChannel.close();
+        receiveChannel.close();
+
+        long packets = result[0];
+        long duration = result[1];
+        long allocated = result[2];
+        System.out.format("%s %d moves/packet %,d packets/sec %,d moves/sec, %.2f bytes allocated/packet%n",
+                          getClass().getSimpleName(), MOVES_PER_PACKET,
+                          (packets * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          (packets * MOVES_PER_PACKET * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          (double) allocated / packets);
+    }
+
+    private void send(DatagramChannel channel)
+    {
+        ByteBuffer packet = ByteBuffer.allocateDirect(MOVES_PER_PACKET * PlayerMoveReceiver.MOVE_SIZE);
+        long id = 0;
+        try
+        {
+            while (sending)
+            {
+                packet.clear();
+                for (int i = 0; i < MOVES_PER_PACKET; i++)
+                {
+                    PlayerMoveReceiver.encode(packet, id++ % PLAYERS, id, 1);
+                }
+                packet.flip();
+                channel.write(packet);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Polls through the warm-up, then counts packets and this thread's
+     * allocation over the run.
+     */
+    private static void measure(PlayerMoveReceiver receiver, long[] result)
+    {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        try
+        {
+            long warmupEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WARMUP_MILLIS);
+            while (System.nanoTime() < warmupEnd)
+            {
+                receiver.poll();
+            }
+
+            long packets = receiver.getPackets();
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            long end = start + TimeUnit.MILLISECONDS.toNanos(RUN_MILLIS);
+            long now;
+            do
+            {
+                receiver.poll();
+                now = System.nanoTime();
+            }
+            while (now < end);
+
+            result[2] = threads.getThreadAllocatedBytes(threadId) - allocated;
+            result[1] = now - start;
+            result[0] = receiver.getPackets() - packets;
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new PlayerMoveReceiverBenchmark().run();
+    }
+}
@@ -0,0 +1,18 @@
+package yow2013.basic;
+
+import java.nio.ByteBuffer;
+
+import com.lmax.disruptor.EventTranslatorOneArg;
+
+class PlayerMoveTranslator implements EventTranslatorOneArg<PlayerMove, ByteBuffer>
+{
+    public static final PlayerMoveTranslator INSTANCE = new PlayerMoveTranslator();
+    
+    @Override
+    public void translateTo(PlayerMove playerMove, long seq, ByteBuffer packet)
+    {
+        playerMove.id = packet.getLong();
+        playerMove.direction = packet.getLong();
+        playerMove.distance = packet.getLong();
+    }
+}
@@ -0,0 +1,100 @@
+package yow2013.basic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * Throughput of {@link PlayerHandler} sharded by player id across 1 to 8
+ * handlers consuming one {@code RingBuffer<PlayerMove>}. After each run,
+ * every player must be held by the shard its id maps to and by no other.
+ */
+public class PlayerShardingBenchmark
+{
+    private static final int SIZE = 1 << 16;
+    private static final long ITERATIONS = 50_000_000L;
+    private static final int PLAYERS = 1_000_000;
+    private static final int MAX_SHARDS = 8;
+
+    public void run() throws InterruptedException
+    {
+        for (int shards = 1; shards <= MAX_SHARDS; shards++)
+        {
+            long opsPerSecond = run(shards);
+            System.out.format("%s shards=%d %,d ops/sec%n", getClass().getSimpleName(), shards, opsPerSecond);
+        }
+    }
+
+    private long run(int shards) throws InterruptedException
+    {
+        RingBuffer<PlayerMove> ringBuffer =
+            RingBuffer.createSingleProducer(new PlayerMoveFactory(), SIZE, new YieldingWaitStrategy());
+
+        PlayerHandler[] handlers = new PlayerHandler[shards];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BatchEventProcessor<PlayerMove>[] processors = new BatchEventProcessor[shards];
+        Thread[] threads = new Thread[shards];
+        for (int i = 0; i < shards; i++)
+        {
+            handlers[i] = new PlayerHandler(i, shards);
+            processors[i] = new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), handlers[i]);
+            ringBuffer.addGatingSequences(processors[i].getSequence());
+            threads[i] = new Thread(processors[i]);
+            threads[i].start();
+        }
+
+        long start = System.nanoTime();
+
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            long next = ringBuffer.next();
+            PlayerMove move = ringBuffer.get(next);
+            move.id = l % PLAYERS;
+            move.direction = l;
+            move.distance = 1;
+            ringBuffer.publish(next);
+        }
+
+        while (Util.getMinimumSequence(Util.getSequencesFor(processors)) < ITERATIONS - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - start;
+
+        int players = 0;
+        for (int i = 0; i < shards; i++)
+        {
+            processors[i].halt();
+            threads[i].join();
+            players += handlers[i].getPlayerCount();
+        }
+        if (players != Math.min(PLAYERS, ITERATIONS))
+        {
+            throw new IllegalStateException("Shards hold " + players + " players, expected " + PLAYERS);
+        }
+        for (long id = 0; id < PLAYERS; id++)
+        {
+            int shard = PlayerHandler.shardOf(id, shards);
+            for (int i = 0; i < shards; i++)
+            {
+                if (handlers[i].hasPlayer(id) != (i == shard))
+                {
+                    throw new IllegalStateException("Player " + id + " of shard " + shard + " is "
+                                                    + (i == shard ? "missing from" : "held by") + " shard " + i);
+                }
+            }
+        }
+
+        return (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        new PlayerShardingBenchmark().run();
+    }
+}
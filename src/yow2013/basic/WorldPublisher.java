@@ -0,0 +1,159 @@
+package yow2013.basic;
+
+import java.util.Arrays;
+
+import com.lmax.disruptor.Cursored;
+
+/**
+ * Publishes {@link WorldSnapshot}s of the players one {@link PlayerHandler}
+ * owns, from the handler's thread, for readers on any other thread.
+ * <p>
+ * A snapshot is published at the end of every {@code batchesPerSnapshot}th
+ * batch, or at the end of any batch that catches up with the ring's cursor,
+ * so an idle world is always fully published.
+ * <p>
+ * There are two snapshots. Readers acquire the front one; the handler
+ * writes into the other, the standby, and then swaps them. The standby is
+ * two publications behind, so the handler replays into it the players that
+ * moved for the previous publication as well as those that moved since.
+ * Publishing writes only those players and allocates nothing, except to
+ * grow both snapshots as new players join.
+ * <p>
+ * The handler never writes into a snapshot a reader still holds. If a reader
+ * is still scanning the standby, a periodic publication is put off to the
+ * next batch rather than block the handler. A catch-up publication waits
+ * for the reader, since the ring is idle.
+ */
+public class WorldPublisher
+{
+    private final Cursored ring;
+    private final int batchesPerSnapshot;
+
+    private int size;
+    private Player[] dirty = new Player[1024];
+    private int dirtyCount;
+    private Player[] previous = new Player[1024];
+    private int previousCount;
+    private int batches;
+
+    private final WorldSnapshot[] snapshots = { new WorldSnapshot(), new WorldSnapshot() };
+    private volatile WorldSnapshot front = snapshots[0];
+
+    public WorldPublisher(Cursored ring, int batchesPerSnapshot)
+    {
+        if (batchesPerSnapshot < 1)
+        {
+            throw new IllegalArgumentException("batchesPerSnapshot must be at least 1");
+        }
+        this.ring = ring;
+        this.batchesPerSnapshot = batchesPerSnapshot;
+    }
+
+    /**
+     * The latest snapshot; safe to call from any thread. Close it as soon as
+     * the scan is done.
+     */
+    public WorldSnapshot acquire()
+    {
+        while (true)
+        {
+            WorldSnapshot snapshot = front;
+            snapshot.readers.getAndIncrement();
+            if (snapshot == front)
+            {
+                return snapshot;
+            }
+            // swapped before we registered, so the handler may be writing it
+            snapshot.readers.getAndDecrement();
+        }
+    }
+
+    void add(Player player)
+    {
+        player.slot = size++;
+        changed(player);
+    }
+
+    void changed(Player player)
+    {
+        if (player.dirty)
+        {
+            return;
+        }
+        if (dirtyCount == dirty.length)
+        {
+            dirty = Arrays.copyOf(dirty, dirtyCount << 1);
+        }
+        player.dirty = true;
+        dirty[dirtyCount++] = player;
+    }
+
+    void endOfBatch(long sequence)
+    {
+        ++batches;
+        if (ring.getCursor() == sequence)
+        {
+            WorldSnapshot standby = standby();
+            while (standby.readers.get() != 0)
+            {
+                Thread.yield();
+            }
+            publish(standby, sequence);
+        }
+        else if (batches >= batchesPerSnapshot)
+        {
+            WorldSnapshot standby = standby();
+            if (standby.readers.get() == 0)
+            {
+                publish(standby, sequence);
+            }
+        }
+    }
+
+    private WorldSnapshot standby()
+    {
+        return front == snapshots[0] ? snapshots[1] : snapshots[0];
+    }
+
+    private void publish(WorldSnapshot standby, long sequence)
+    {
+        if (standby.fields.length < size * WorldSnapshot.FIELDS)
+        {
+            // the front snapshot is complete as of the last publication
+            long[] fields = front.fields;
+            int capacity = Math.max(size, 2 * fields.length / WorldSnapshot.FIELDS);
+            standby.fields = Arrays.copyOf(fields, capacity * WorldSnapshot.FIELDS);
+        }
+
+        write(standby.fields, previous, previousCount);
+        write(standby.fields, dirty, dirtyCount);
+        standby.size = size;
+        standby.sequence = sequence;
+        standby.timestamp = System.nanoTime();
+        front = standby;
+
+        Arrays.fill(previous, 0, previousCount, null);
+        Player[] players = previous;
+        previous = dirty;
+        previousCount = dirtyCount;
+        dirty = players;
+        dirtyCount = 0;
+        for (int i = 0; i < previousCount; i++)
+        {
+            previous[i].dirty = false;
+        }
+        batches = 0;
+    }
+
+    private static void write(long[] fields, Player[] players, int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            Player player = players[i];
+            int offset = player.slot * WorldSnapshot.FIELDS;
+            fields[offset + WorldSnapshot.ID] = player.id;
+            fields[offset + WorldSnapshot.X] = player.x;
+            fields[offset + WorldSnapshot.Y] = player.y;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package yow2013.basic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * View of every player's position as of one ring sequence, published by a
+ * {@link WorldPublisher}. Any thread may acquire the latest snapshot and scan
+ * it without locks; nothing in it changes until it is closed.
+ * <p>
+ * A publisher owns two snapshots and reuses them, so a snapshot must be
+ * closed once the scan is done and not used afterwards. While a reader holds
+ * one open the publisher cannot write into it, and publication waits.
+ * <p>
+ * Players are numbered densely in the order they first moved.
+ */
+public final class WorldSnapshot implements AutoCloseable
+{
+    static final int FIELDS = 3;
+    static final int ID = 0;
+    static final int X = 1;
+    static final int Y = 2;
+
+    final AtomicInteger readers = new AtomicInteger();
+
+    // written by the publisher only while there are no readers
+    long[] fields = new long[0];
+    int size;
+    long sequence = -1;
+    long timestamp = System.nanoTime();
+
+    public int size()
+    {
+        return size;
+    }
+
+    public long getId(int player)
+    {
+        return field(player, ID);
+    }
+
+    public long getX(int player)
+    {
+        return field(player, X);
+    }
+
+    public long getY(int player)
+    {
+        return field(player, Y);
+    }
+
+    /**
+     * The last ring sequence reflected in this snapshot.
+     */
+    public long getSequence()
+    {
+        return sequence;
+    }
+
+    /**
+     * {@link System#nanoTime()} when this snapshot was published.
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * Hands the snapshot back to its publisher.
+     */
+    @Override
+    public void close()
+    {
+        readers.getAndDecrement();
+    }
+
+    private long field(int player, int field)
+    {
+        if (player < 0 || player >= size)
+        {
+            throw new IndexOutOfBoundsException("No player " + player + " of " + size);
+        }
+        return fields[player * FIELDS + field];
+    }
+}
@@ -0,0 +1,156 @@
+package yow2013.basic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Throughput of {@link PlayerHandler} while it publishes {@link WorldSnapshot}s
+ * every 1, 16 and 256 batches, against none at all, with a reader thread
+ * scanning every snapshot it sees.
+ * <p>
+ * Every move takes one player one step east, so the x positions in a
+ * snapshot of sequence s must add up to exactly s + 1; the reader checks
+ * this to show that each snapshot is consistent. It also reports how many
+ * sequences behind the ring's cursor the snapshots it read were.
+ */
+public class WorldSnapshotBenchmark
+{
+    private static final int SIZE = 1 << 16;
+    private static final long ITERATIONS = 50_000_000L;
+    private static final int PLAYERS = 1_000_000;
+    private static final int[] BATCHES_PER_SNAPSHOT = { 0, 1, 16, 256 };
+
+    private static final class Reader extends Thread
+    {
+        private final WorldPublisher world;
+        private final RingBuffer<PlayerMove> ringBuffer;
+        private volatile boolean running = true;
+        private long scans;
+        private long maxLag;
+        private IllegalStateException failure;
+
+        Reader(WorldPublisher world, RingBuffer<PlayerMove> ringBuffer)
+        {
+            this.world = world;
+            this.ringBuffer = ringBuffer;
+        }
+
+        @Override
+        public void run()
+        {
+            long last = -1;
+            while (running)
+            {
+                long sequence;
+                try (WorldSnapshot snapshot = world.acquire())
+                {
+                    sequence = snapshot.getSequence();
+                    maxLag = Math.max(maxLag, ringBuffer.getCursor() - sequence);
+                    if (sequence != last)
+                    {
+                        long sum = 0;
+                        for (int i = 0, size = snapshot.size(); i < size; i++)
+                        {
+                            sum += snapshot.getX(i);
+                        }
+                        if (sum != sequence + 1)
+                        {
+                            failure = new IllegalStateException("Snapshot of " + sequence + " sums to " + sum);
+                            return;
+                        }
+                        scans++;
+                    }
+                }
+
+                if (sequence == last)
+                {
+                    Thread.yield();
+                }
+                last = sequence;
+            }
+        }
+    }
+
+    public void run() throws InterruptedException
+    {
+        for (int batchesPerSnapshot : BATCHES_PER_SNAPSHOT)
+        {
+            run(batchesPerSnapshot);
+        }
+    }
+
+    private void run(int batchesPerSnapshot) throws InterruptedException
+    {
+        RingBuffer<PlayerMove> ringBuffer =
+            RingBuffer.createSingleProducer(new PlayerMoveFactory(), SIZE, new YieldingWaitStrategy());
+        WorldPublisher world = batchesPerSnapshot > 0 ? new WorldPublisher(ringBuffer, batchesPerSnapshot) : null;
+        BatchEventProcessor<PlayerMove> processor =
+            new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), new PlayerHandler(0, 1, world));
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        Thread consumer = new Thread(processor);
+        consumer.start();
+        Reader reader = null;
+        if (null != world)
+        {
+            reader = new Reader(world, ringBuffer);
+            reader.start();
+        }
+
+        long start = System.nanoTime();
+
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            long next = ringBuffer.next();
+            PlayerMove move = ringBuffer.get(next);
+            move.id = l % PLAYERS;
+            move.direction = 1;
+            move.distance = 1;
+            ringBuffer.publish(next);
+        }
+
+        while (processor.getSequence().get() < ITERATIONS - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - start;
+
+        processor.halt();
+        consumer.join();
+
+        if (null == reader)
+        {
+            System.out.format("%s no snapshots %,d ops/sec%n", getClass().getSimpleName(),
+                              (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration);
+            return;
+        }
+
+        reader.running = false;
+        reader.join();
+        if (null != reader.failure)
+        {
+            throw reader.failure;
+        }
+        try (WorldSnapshot snapshot = world.acquire())
+        {
+            if (snapshot.getSequence() != ITERATIONS - 1)
+            {
+                throw new IllegalStateException("Last snapshot is of " + snapshot.getSequence());
+            }
+        }
+
+        System.out.format("%s every %d batches %,d ops/sec, %,d scans, max lag %,d%n", getClass().getSimpleName(),
+                          batchesPerSnapshot, (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          reader.scans, reader.maxLag);
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        new WorldSnapshotBenchmark().run();
+    }
+}
@@ -1,18 +1,33 @@
 package yow2013.immutable;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 
-import com.lmax.disruptor.BatchEventProcessor;
+import yow2013.ThreadCpuTime;
+import yow2013.WaitStrategies;
+import yow2013.metrics.ConsumerMetrics;
+import yow2013.metrics.RingMetrics;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventProcessor;
 import com.lmax.disruptor.SingleProducerSequencer;
-import com.lmax.disruptor.YieldingWaitStrategy;
 
 public class CustomPerformanceTest
 {
     private final CustomRingBuffer<SimpleEvent> ringBuffer;
+    private final SimpleEvent.Pool pool;
+    private final WaitStrategies waitStrategy;
+    private final RingMetrics metrics;
+    private final boolean range;
     
-    public CustomPerformanceTest()
+    public CustomPerformanceTest(WaitStrategies waitStrategy, boolean recycle, boolean jmx, boolean range)
     {
-        ringBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(Constants.SIZE, new YieldingWaitStrategy()));
+        this.waitStrategy = waitStrategy;
+        this.range = range;
+        ringBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(Constants.SIZE, waitStrategy.create()));
+        pool = recycle ? new SimpleEvent.Pool(Constants.SIZE) : null;
+        metrics = jmx ? ringBuffer.instrument(getClass().getSimpleName() + "-" + waitStrategy) : null;
     }
     
     public void run()
@@ -29,15 +44,45 @@ public class CustomPerformanceTest
 
     private void doRun() throws InterruptedException
     {
-        BatchEventProcessor<?> batchEventProcessor = ringBuffer.createHandler(new SimpleEventHandler());
+        EventProcessor batchEventProcessor;
+        if (range)
+        {
+            batchEventProcessor = ringBuffer.createRangeHandler(new RangeHandler<EventAccessor<SimpleEvent>>()
+            {
+                @Override
+                public void onRange(EventAccessor<SimpleEvent> accessor, long lo, long hi)
+                {
+                    if (null != pool)
+                    {
+                        for (long sequence = lo; sequence <= hi; sequence++)
+                        {
+                            pool.release(accessor.peek(sequence));
+                        }
+                    }
+                }
+            });
+        }
+        else
+        {
+            EventHandler<SimpleEvent> handler = new SimpleEventHandler();
+            if (null != pool)
+            {
+                handler = new RecyclingEventHandler<>(handler, pool);
+            }
+            batchEventProcessor = ringBuffer.createHandler(handler);
+        }
         
         Thread t = new Thread(batchEventProcessor);
         t.start();
         
+        long start = System.nanoTime();
+        long producerCpu = ThreadCpuTime.current();
+        long consumerCpu = ThreadCpuTime.of(t);
+        
         long iterations = Constants.ITERATIONS;
         for (long l = 0; l < iterations; l++)
         {
-            SimpleEvent e = new SimpleEvent(l, l, l, l);
+            SimpleEvent e = null != pool ? pool.acquire(l, l, l, l) : new SimpleEvent(l, l, l, l);
             ringBuffer.put(e);
         }
         
@@ -46,13 +91,41 @@ public class CustomPerformanceTest
             LockSupport.parkNanos(1);
         }
         
+        long duration = System.nanoTime() - start;
+        producerCpu = ThreadCpuTime.current() - producerCpu;
+        consumerCpu = ThreadCpuTime.of(t) - consumerCpu;
+        
         batchEventProcessor.halt();
         t.join();
+        
+        System.out.format("%s%s%s %s %,d ops/sec, producer %s, consumer %s%n", getClass().getSimpleName(),
+                          null != pool ? " (recycling)" : "", range ? " (range)" : "", waitStrategy,
+                          (iterations * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          ThreadCpuTime.format(producerCpu, duration), ThreadCpuTime.format(consumerCpu, duration));
+        
+        if (null != metrics)
+        {
+            for (ConsumerMetrics consumer : metrics.getConsumers())
+            {
+                System.out.format("  %s: mean batch %.1f, waiting %,d ms, handling %,d ms, producer stalls %,d (%,d ms)%n",
+                                  consumer.getName(), consumer.getMeanBatchSize(),
+                                  TimeUnit.NANOSECONDS.toMillis(consumer.getWaitNanos()),
+                                  TimeUnit.NANOSECONDS.toMillis(consumer.getHandlerNanos()),
+                                  metrics.getProducerStalls(), TimeUnit.NANOSECONDS.toMillis(metrics.getProducerStallNanos()));
+            }
+            metrics.unregister();
+        }
     }
             
     public static void main(String[] args)
     {
-        new CustomPerformanceTest().run();
+        boolean recycle = Arrays.asList(args).contains("recycle");
+        boolean jmx = Arrays.asList(args).contains("jmx");
+        boolean range = Arrays.asList(args).contains("range");
+        for (WaitStrategies waitStrategy : WaitStrategies.fromArgs(args))
+        {
+            new CustomPerformanceTest(waitStrategy, recycle, jmx, range).run();
+        }
     }
 
 }
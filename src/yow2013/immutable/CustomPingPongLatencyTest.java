@@ -18,6 +18,7 @@ package yow2013.immutable;
 import static com.lmax.disruptor.RingBuffer.createSingleProducer;
 
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -27,13 +28,15 @@ import java.util.concurrent.TimeUnit;
 
 import org.HdrHistogram.Histogram;
 
+import yow2013.ThreadCpuTime;
+import yow2013.WaitStrategies;
+
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.LifecycleAware;
 import com.lmax.disruptor.RingBuffer;
 import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.SingleProducerSequencer;
-import com.lmax.disruptor.YieldingWaitStrategy;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 
 /**
@@ -76,14 +79,34 @@ public final class CustomPingPongLatencyTest
 
     ///////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final CustomRingBuffer<SimpleEvent> pingBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(BUFFER_SIZE, new YieldingWaitStrategy()));
-    private final CustomRingBuffer<SimpleEvent> pongBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(BUFFER_SIZE, new YieldingWaitStrategy()));
+    private final WaitStrategies waitStrategy;
+    private final long pauseNanos;
+    private final long iterations;
+    private final CustomRingBuffer<SimpleEvent> pingBuffer;
+    private final CustomRingBuffer<SimpleEvent> pongBuffer;
 
-    private final Pinger pinger = new Pinger(pingBuffer, ITERATIONS, PAUSE_NANOS);
-    private final Ponger ponger = new Ponger(pongBuffer);
+    private final SimpleEvent.Pool pool;
+    private final Pinger pinger;
+    private final Ponger ponger;
     
-    private final BatchEventProcessor<EventAccessor<SimpleEvent>> pingProcessor = pongBuffer.createHandler(pinger);
-    private final BatchEventProcessor<EventAccessor<SimpleEvent>> pongProcessor = pingBuffer.createHandler(ponger);
+    private final BatchEventProcessor<EventAccessor<SimpleEvent>> pingProcessor;
+    private final BatchEventProcessor<EventAccessor<SimpleEvent>> pongProcessor;
+
+    public CustomPingPongLatencyTest(WaitStrategies waitStrategy, long pauseNanos, boolean recycle)
+    {
+        this.waitStrategy = waitStrategy;
+        this.pauseNanos = pauseNanos;
+        // keep each run about as long as the default rate's
+        this.iterations = Math.min(ITERATIONS, (ITERATIONS * PAUSE_NANOS) / Math.max(PAUSE_NANOS, pauseNanos));
+        pingBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(BUFFER_SIZE, waitStrategy.create()));
+        pongBuffer = new CustomRingBuffer<>(new SingleProducerSequencer(BUFFER_SIZE, waitStrategy.create()));
+
+        pool = recycle ? new SimpleEvent.Pool(BUFFER_SIZE) : null;
+        pinger = new Pinger(pingBuffer, iterations, pauseNanos, pool);
+        ponger = new Ponger(pongBuffer);
+        pingProcessor = pongBuffer.createHandler(pinger);
+        pongProcessor = pingBuffer.createHandler(ponger);
+    }
 
     ///////////////////////////////////////////////////////////////////////////////////////////////
 
@@ -98,16 +121,31 @@ public final class CustomPingPongLatencyTest
 
             runDisruptorPass();
 
-            if (histogram.getHistogramData().getTotalCount() < ITERATIONS)
+            if (histogram.getHistogramData().getTotalCount() < iterations)
             {
                 throw new IllegalStateException();
             }
             
-            System.out.format("%s run %d Disruptor %s\n", getClass().getSimpleName(), Long.valueOf(i), histogram);
+            System.out.format("%s%s %s run %d Disruptor %s\n", getClass().getSimpleName(),
+                              null != pool ? " (recycling)" : "", waitStrategy, Long.valueOf(i), histogram);
             dumpHistogram(histogram, System.out);
+            printSummary(histogram, System.out);
         }
     }
 
+    private void printSummary(Histogram histogram, final PrintStream out)
+    {
+        long elapsed = pinger.getElapsedNanos();
+        out.format("%s%s %s pause %,d ns: %,d round trips/sec, p50 %,d ns, p99 %,d ns, p99.99 %,d ns, pinger %s, ponger %s%n",
+                   getClass().getSimpleName(), null != pool ? " (recycling)" : "", waitStrategy, pauseNanos,
+                   (iterations * TimeUnit.SECONDS.toNanos(1)) / elapsed,
+                   histogram.getHistogramData().getValueAtPercentile(50.0),
+                   histogram.getHistogramData().getValueAtPercentile(99.0),
+                   histogram.getHistogramData().getValueAtPercentile(99.99),
+                   ThreadCpuTime.format(pinger.getCpuNanos(), elapsed),
+                   ThreadCpuTime.format(ponger.getCpuNanos(), elapsed));
+    }
+
     private static void dumpHistogram(Histogram histogram, final PrintStream out)
     {
         histogram.getHistogramData().outputPercentileDistribution(out, 1, 1000.0);
@@ -116,9 +154,10 @@ public final class CustomPingPongLatencyTest
     private void runDisruptorPass() throws InterruptedException, BrokenBarrierException
     {
         CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
         CyclicBarrier barrier = new CyclicBarrier(3);
         pinger.reset(barrier, latch, histogram);
-        ponger.reset(barrier);
+        ponger.reset(barrier, stopped);
 
         executor.submit(pongProcessor);
         executor.submit(pingProcessor);
@@ -128,12 +167,42 @@ public final class CustomPingPongLatencyTest
 
         pingProcessor.halt();
         pongProcessor.halt();
+        stopped.await();
     }
 
     public static void main(String[] args) throws Exception
     {
-        CustomPingPongLatencyTest test = new CustomPingPongLatencyTest();
-        test.runTest();
+        boolean recycle = Arrays.asList(args).contains("recycle");
+        for (long pauseNanos : pausesFromArgs(args))
+        {
+            for (WaitStrategies waitStrategy : WaitStrategies.fromArgs(args))
+            {
+                CustomPingPongLatencyTest test = new CustomPingPongLatencyTest(waitStrategy, pauseNanos, recycle);
+                test.runTest();
+            }
+        }
+    }
+
+    /**
+     * Pauses between round trips, which set the offered rate, from a
+     * "pause=500,5000,50000" argument in nanoseconds.
+     */
+    private static long[] pausesFromArgs(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith("pause="))
+            {
+                String[] values = arg.substring("pause=".length()).split(",");
+                long[] pauses = new long[values.length];
+                for (int i = 0; i < values.length; i++)
+                {
+                    pauses[i] = Long.parseLong(values[i].trim());
+                }
+                return pauses;
+            }
+        }
+        return new long[] {PAUSE_NANOS};
     }
 
     private static class Pinger implements EventHandler<SimpleEvent>, LifecycleAware
@@ -141,18 +210,24 @@ public final class CustomPingPongLatencyTest
         private final CustomRingBuffer<SimpleEvent> buffer;
         private final long maxEvents;
         private final long pauseTimeNs;
+        private final SimpleEvent.Pool pool;
 
         private long counter = 0;
         private CyclicBarrier barrier;
         private CountDownLatch latch;
         private Histogram histogram;
         private long t0;
+        private long startNanos;
+        private long elapsedNanos;
+        private long cpuStart;
+        private long cpuNanos;
 
-        public Pinger(CustomRingBuffer<SimpleEvent> buffer, long maxEvents, long pauseTimeNs)
+        public Pinger(CustomRingBuffer<SimpleEvent> buffer, long maxEvents, long pauseTimeNs, SimpleEvent.Pool pool)
         {
             this.buffer = buffer;
             this.maxEvents = maxEvents;
             this.pauseTimeNs = pauseTimeNs;
+            this.pool = pool;
         }
 
         @Override
@@ -173,15 +248,23 @@ public final class CustomPingPongLatencyTest
             }
             else
             {
+                elapsedNanos = System.nanoTime() - startNanos;
+                cpuNanos = ThreadCpuTime.current() - cpuStart;
                 latch.countDown();
             }
+
+            if (null != pool)
+            {
+                pool.release(event);
+            }
         }
 
         private void send()
         {
             t0 = System.nanoTime();
             
-            buffer.put(new SimpleEvent(t0, counter, counter, counter));
+            buffer.put(null != pool ? pool.acquire(t0, counter, counter, counter)
+                                    : new SimpleEvent(t0, counter, counter, counter));
 
             counter++;
         }
@@ -194,6 +277,8 @@ public final class CustomPingPongLatencyTest
                 barrier.await();
 
                 Thread.sleep(1000);
+                startNanos = System.nanoTime();
+                cpuStart = ThreadCpuTime.current();
                 send();
             }
             catch (Exception e)
@@ -215,6 +300,16 @@ public final class CustomPingPongLatencyTest
 
             counter = 0;
         }
+
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        public long getCpuNanos()
+        {
+            return cpuNanos;
+        }
     }
 
     private static class Ponger implements EventHandler<SimpleEvent>, LifecycleAware
@@ -222,6 +317,9 @@ public final class CustomPingPongLatencyTest
         private final CustomRingBuffer<SimpleEvent> buffer;
 
         private CyclicBarrier barrier;
+        private CountDownLatch stopped;
+        private long cpuStart;
+        private long cpuNanos;
 
         public Ponger(CustomRingBuffer<SimpleEvent> buffer)
         {
@@ -231,6 +329,11 @@ public final class CustomPingPongLatencyTest
         @Override
         public void onEvent(SimpleEvent event, long sequence, boolean endOfBatch) throws Exception
         {
+            if (0 == cpuStart)
+            {
+                // only count from the first ping, not the pinger's warm-up sleep
+                cpuStart = ThreadCpuTime.current();
+            }
             buffer.put(event);
         }
 
@@ -250,11 +353,20 @@ public final class CustomPingPongLatencyTest
         @Override
         public void onShutdown()
         {
+            cpuNanos = ThreadCpuTime.current() - cpuStart;
+            stopped.countDown();
         }
 
-        public void reset(CyclicBarrier barrier)
+        public void reset(CyclicBarrier barrier, CountDownLatch stopped)
         {
             this.barrier = barrier;
+            this.stopped = stopped;
+            cpuStart = 0;
+        }
+
+        public long getCpuNanos()
+        {
+            return cpuNanos;
         }
     }
 }
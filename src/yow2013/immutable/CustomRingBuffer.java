@@ -1,10 +1,29 @@
 package yow2013.immutable;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.DataProvider;
 import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.FatalExceptionHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
 import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.MultiProducerSequencer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.WorkHandler;
+
+import yow2013.metrics.RingMetrics;
 
 public class CustomRingBuffer<T> implements DataProvider<EventAccessor<T>>,
         EventAccessor<T> {
@@ -13,9 +32,11 @@ public class CustomRingBuffer<T> implements DataProvider<EventAccessor<T>>,
             EventHandler<EventAccessor<T>>, LifecycleAware {
         private final EventHandler<T> handler;
         private final LifecycleAware lifecycle;
+        private final boolean release;
 
-        private AccessorEventHandler(EventHandler<T> handler) {
+        private AccessorEventHandler(EventHandler<T> handler, boolean release) {
             this.handler = handler;
+            this.release = release;
             lifecycle = handler instanceof LifecycleAware ? (LifecycleAware) handler
                     : null;
         }
@@ -23,7 +44,114 @@ public class CustomRingBuffer<T> implements DataProvider<EventAccessor<T>>,
         @Override
         public void onEvent(EventAccessor<T> accessor, long sequence,
                 boolean endOfBatch) throws Exception {
-            this.handler.onEvent(accessor.take(sequence), sequence, endOfBatch);
+            T event = release ? accessor.take(sequence) : accessor.peek(sequence);
+            this.handler.onEvent(event, sequence, endOfBatch);
+        }
+
+        @Override
+        public void onShutdown() {
+            if (null != lifecycle) {
+                lifecycle.onShutdown();
+            }
+        }
+
+        @Override
+        public void onStart() {
+            if (null != lifecycle) {
+                lifecycle.onStart();
+            }
+        }
+    }
+
+    /**
+     * Every partition reads every event, but only the owner of an event's key
+     * takes it. Delivery of an owned event is deferred until the next owned
+     * event or the end of the batch, so the handler still sees endOfBatch
+     * when the batch ends on an event owned by another partition.
+     */
+    private static final class PartitionedEventHandler<T> implements
+            EventHandler<EventAccessor<T>>, LifecycleAware {
+        private final EventHandler<T> handler;
+        private final LifecycleAware lifecycle;
+        private final EventKey<T> key;
+        private final int partition;
+        private final int partitions;
+
+        private T pending;
+        private long pendingSequence;
+
+        private PartitionedEventHandler(EventHandler<T> handler,
+                EventKey<T> key, int partition, int partitions) {
+            this.handler = handler;
+            this.key = key;
+            this.partition = partition;
+            this.partitions = partitions;
+            lifecycle = handler instanceof LifecycleAware ? (LifecycleAware) handler
+                    : null;
+        }
+
+        @Override
+        public void onEvent(EventAccessor<T> accessor, long sequence,
+                boolean endOfBatch) throws Exception {
+            // null if another partition owned it and has already taken it
+            T event = accessor.peek(sequence);
+            if (null != event
+                    && partitionOf(key.keyOf(event), partitions) == partition) {
+                accessor.take(sequence);
+                if (null != pending) {
+                    handler.onEvent(pending, pendingSequence, false);
+                }
+                pending = event;
+                pendingSequence = sequence;
+            }
+
+            if (endOfBatch && null != pending) {
+                T last = pending;
+                pending = null;
+                handler.onEvent(last, pendingSequence, true);
+            }
+        }
+
+        @Override
+        public void onShutdown() {
+            if (null != lifecycle) {
+                lifecycle.onShutdown();
+            }
+        }
+
+        @Override
+        public void onStart() {
+            if (null != lifecycle) {
+                lifecycle.onStart();
+            }
+        }
+    }
+
+    /**
+     * Clears the range's slots once the terminal range handler has returned,
+     * whether or not it took the events itself.
+     */
+    private static final class ClearingRangeHandler<T> implements
+            RangeHandler<EventAccessor<T>>, LifecycleAware {
+        private final RangeHandler<EventAccessor<T>> handler;
+        private final LifecycleAware lifecycle;
+
+        private ClearingRangeHandler(RangeHandler<EventAccessor<T>> handler) {
+            this.handler = handler;
+            lifecycle = handler instanceof LifecycleAware ? (LifecycleAware) handler
+                    : null;
+        }
+
+        @Override
+        public void onRange(EventAccessor<T> accessor, long lo, long hi)
+                throws Exception {
+            try {
+                handler.onRange(accessor, lo, hi);
+            } finally {
+                for (long sequence = lo; sequence <= hi; sequence++) {
+                    accessor.take(sequence);
+                }
+            }
         }
 
         @Override
@@ -44,6 +172,9 @@ public class CustomRingBuffer<T> implements DataProvider<EventAccessor<T>>,
     private final Sequencer sequencer;
     private final Object[] buffer;
     private final int mask;
+    private final Map<Sequence, Sequence[]> stages = new IdentityHashMap<>();
+    private boolean terminated = false;
+    private RingMetrics metrics;
 
     public CustomRingBuffer(Sequencer sequencer) {
         this.sequencer = sequencer;
@@ -51,16 +182,158 @@ public class CustomRingBuffer<T> implements DataProvider<EventAccessor<T>>,
         mask = sequencer.getBufferSize() - 1;
     }
 
+    public static <T> CustomRingBuffer<T> createSingleProducer(int bufferSize,
+            WaitStrategy waitStrategy) {
+        return new CustomRingBuffer<>(new SingleProducerSequencer(bufferSize,
+                waitStrategy));
+    }
+
+    /**
+     * A ring that any number of threads may put to concurrently. Each
+     * producer writes only the slots it has claimed and publishes them
+     * afterwards, and the multi-producer sequencer marks each slot available
+     * with an ordered store, so consumers never see a slot before its write
+     * even when a later claim is published first.
+     */
+    public static <T> CustomRingBuffer<T> createMultiProducer(int bufferSize,
+            WaitStrategy waitStrategy) {
+        return new CustomRingBuffer<>(new MultiProducerSequencer(bufferSize,
+                waitStrategy));
+    }
+
     private int index(long sequence) {
         return (int)sequence & mask;
     }
 
+    /**
+     * Registers JMX metrics for this ring under {@code name}. Handlers created
+     * afterwards are instrumented; worker pools are not.
+     */
+    public RingMetrics instrument(String name) {
+        metrics = new RingMetrics(name, sequencer).register();
+        return metrics;
+    }
+
+    private long claim(int n) {
+        return null == metrics ? sequencer.next(n) : metrics.next(n);
+    }
+
     public void put(T e) {
-        long next = sequencer.next();
+        long next = claim(1);
         buffer[index(next)] = e;
         sequencer.publish(next);
     }
 
+    /**
+     * Publishes {@code length} events with a single claim and publish, or one
+     * per ring's worth of events if the batch is larger than the ring.
+     *
+     * @throws IndexOutOfBoundsException if the range is not within
+     * {@code events}, before anything is claimed.
+     */
+    public void put(T[] events, int offset, int length) {
+        checkRange(events, offset, length);
+        while (length > 0) {
+            int batch = Math.min(length, buffer.length);
+            long hi = claim(batch);
+            long lo = hi - (batch - 1);
+            try {
+                for (long sequence = lo; sequence <= hi; sequence++) {
+                    buffer[index(sequence)] = events[offset++];
+                }
+            } finally {
+                sequencer.publish(lo, hi);
+            }
+            length -= batch;
+        }
+    }
+
+    /**
+     * Publishes the events in batches if {@code events} is a
+     * {@link Collection}, otherwise one at a time. A collection is copied
+     * into a new array before anything is claimed, so every claimed slot is
+     * filled even if the collection changes or its iterator fails; that copy
+     * is garbage, so use {@link #put(Object[], int, int)} on a reused array
+     * where allocation matters.
+     */
+    @SuppressWarnings("unchecked")
+    public void put(Iterable<? extends T> events) {
+        if (!(events instanceof Collection)) {
+            for (T e : events) {
+                put(e);
+            }
+            return;
+        }
+
+        T[] snapshot = (T[]) ((Collection<? extends T>) events).toArray();
+        put(snapshot, 0, snapshot.length);
+    }
+
+    /**
+     * Publishes the event unless the ring is full.
+     *
+     * @return false if there was no capacity, in which case nothing was
+     * published.
+     */
+    public boolean tryPut(T e) {
+        long next;
+        try {
+            next = sequencer.tryNext();
+        } catch (InsufficientCapacityException ex) {
+            return false;
+        }
+        buffer[index(next)] = e;
+        sequencer.publish(next);
+        return true;
+    }
+
+    /**
+     * Publishes all {@code length} events if there is capacity for all of
+     * them, otherwise none. An empty batch always succeeds.
+     *
+     * @throws IllegalArgumentException if {@code length} is larger than the
+     * ring, since there could never be capacity for it.
+     * @throws IndexOutOfBoundsException if the range is not within
+     * {@code events}.
+     */
+    public boolean tryPut(T[] events, int offset, int length) {
+        checkRange(events, offset, length);
+        if (0 == length) {
+            return true;
+        }
+        if (length > buffer.length) {
+            throw new IllegalArgumentException("Batch of " + length
+                    + " is larger than the ring of " + buffer.length);
+        }
+
+        long hi;
+        try {
+            hi = sequencer.tryNext(length);
+        } catch (InsufficientCapacityException ex) {
+            return false;
+        }
+        long lo = hi - (length - 1);
+        try {
+            for (long sequence = lo; sequence <= hi; sequence++) {
+                buffer[index(sequence)] = events[offset++];
+            }
+        } finally {
+            sequencer.publish(lo, hi);
+        }
+        return true;
+    }
+
+    private static void checkRange(Object[] events, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > events.length - length) {
+            throw new IndexOutOfBoundsException("Range " + offset + "+" + length
+                    + " is outside an array of " + events.length);
+        }
+    }
+
+    public long remainingCapacity() {
+        return sequencer.remainingCapacity();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public T take(long sequence) {
@@ -72,19 +345,191 @@ public class CustomRingBuffer<T> implements DataProvider<EventAccessor<T>>,
         return t;
     }
 
+    @SuppressWarnings("unchecked")
+    @Override
+    public T peek(long sequence) {
+        return (T) buffer[index(sequence)];
+    }
+
     @Override
     public EventAccessor<T> get(long sequence) {
         return this;
     }
 
+    /**
+     * Creates the terminal handler, which takes each event and clears its
+     * slot. It must depend, directly or through other stages, on every stage
+     * created with {@link #createStage}, so that no stage can still be
+     * reading a slot once it is cleared. Only one terminal handler may be
+     * created.
+     */
     public BatchEventProcessor<EventAccessor<T>> createHandler(
-            final EventHandler<T> handler) {
-        BatchEventProcessor<EventAccessor<T>> processor = new BatchEventProcessor<>(
-                this, sequencer.newBarrier(), new AccessorEventHandler<T>(
-                        handler));
+            final EventHandler<T> handler, Sequence... dependencies) {
+        checkTerminal(dependencies);
+
+        BatchEventProcessor<EventAccessor<T>> processor = createProcessor(
+                new AccessorEventHandler<T>(handler, true), dependencies);
+
+        terminate(processor.getSequence());
+
+        return processor;
+    }
+
+    /**
+     * Creates the terminal handler as a {@link RangeHandler}, which is given
+     * each available batch as one range and reads it with
+     * {@link EventAccessor#peek}. The slots are cleared when it returns. The
+     * same rules as {@link #createHandler} apply.
+     */
+    public RangeEventProcessor<EventAccessor<T>> createRangeHandler(
+            RangeHandler<EventAccessor<T>> handler, Sequence... dependencies) {
+        checkTerminal(dependencies);
+
+        RangeEventProcessor<EventAccessor<T>> processor = new RangeEventProcessor<EventAccessor<T>>(
+                this, sequencer.newBarrier(dependencies),
+                new ClearingRangeHandler<T>(handler));
+
+        terminate(processor.getSequence());
+
+        return processor;
+    }
+
+    /**
+     * Creates a non-terminal {@link RangeHandler}, with the same rules as
+     * {@link #createStage}.
+     */
+    public RangeEventProcessor<EventAccessor<T>> createRangeStage(
+            RangeHandler<EventAccessor<T>> handler, Sequence... dependencies) {
+        checkStage();
+
+        RangeEventProcessor<EventAccessor<T>> processor = new RangeEventProcessor<EventAccessor<T>>(
+                this, sequencer.newBarrier(dependencies), handler);
+
+        addStage(processor.getSequence(), dependencies);
 
-        sequencer.addGatingSequences(processor.getSequence());
+        return processor;
+    }
+
+    /**
+     * Creates the terminal handlers as a pool of workers, each event being
+     * taken by whichever worker claims its sequence first. Events are not
+     * handled in sequence order across workers. The same rules as
+     * {@link #createHandler} apply; the pool is the terminal handler.
+     */
+    public CustomWorkerPool<T> createWorkerPool(WorkHandler<T>[] handlers,
+            Sequence... dependencies) {
+        checkTerminal(dependencies);
+
+        Sequence workSequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+        CustomWorkProcessor<?>[] processors = new CustomWorkProcessor<?>[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            processors[i] = new CustomWorkProcessor<>(this,
+                    sequencer.newBarrier(dependencies), handlers[i],
+                    new FatalExceptionHandler(), workSequence);
+        }
+        CustomWorkerPool<T> pool = new CustomWorkerPool<>(workSequence, processors);
+
+        terminate(pool.getWorkerSequences());
+
+        return pool;
+    }
+
+    /**
+     * Creates the terminal handlers as one processor per handler, handler i
+     * taking the events whose key maps to partition i. Events with the same
+     * key are handled in sequence order by the same handler. The same rules
+     * as {@link #createHandler} apply; the partitions together are the
+     * terminal handler.
+     */
+    public BatchEventProcessor<EventAccessor<T>>[] createPartitionedHandlers(
+            EventKey<T> key, EventHandler<T>[] handlers, Sequence... dependencies) {
+        checkTerminal(dependencies);
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BatchEventProcessor<EventAccessor<T>>[] processors = new BatchEventProcessor[handlers.length];
+        Sequence[] sequences = new Sequence[handlers.length];
+        for (int i = 0; i < handlers.length; i++) {
+            processors[i] = createProcessor(new PartitionedEventHandler<T>(
+                    handlers[i], key, i, handlers.length), dependencies);
+            sequences[i] = processors[i].getSequence();
+        }
+
+        terminate(sequences);
+
+        return processors;
+    }
+
+    /**
+     * Creates a non-terminal handler that reads events without clearing the
+     * slot, after the handlers owning {@code dependencies} have seen them.
+     */
+    public BatchEventProcessor<EventAccessor<T>> createStage(
+            final EventHandler<T> handler, Sequence... dependencies) {
+        checkStage();
+
+        BatchEventProcessor<EventAccessor<T>> processor = createProcessor(
+                new AccessorEventHandler<T>(handler, false), dependencies);
+
+        addStage(processor.getSequence(), dependencies);
 
         return processor;
     }
+
+    private BatchEventProcessor<EventAccessor<T>> createProcessor(
+            EventHandler<EventAccessor<T>> handler, Sequence[] dependencies) {
+        SequenceBarrier barrier = sequencer.newBarrier(dependencies);
+        return null == metrics ? new BatchEventProcessor<>(this, barrier, handler)
+                : metrics.newProcessor(this, barrier, handler);
+    }
+
+    private void checkStage() {
+        if (terminated) {
+            throw new IllegalStateException(
+                    "Stages must be created before the terminal handler");
+        }
+    }
+
+    private void addStage(Sequence stage, Sequence[] dependencies) {
+        sequencer.addGatingSequences(stage);
+        stages.put(stage, dependencies.clone());
+    }
+
+    private void checkTerminal(Sequence[] dependencies) {
+        if (terminated) {
+            throw new IllegalStateException("Terminal handler already created");
+        }
+
+        Set<Sequence> upstream = upstreamOf(dependencies);
+        if (!upstream.containsAll(stages.keySet())) {
+            throw new IllegalArgumentException(
+                    "Terminal handler must depend on every stage");
+        }
+    }
+
+    private void terminate(Sequence... terminal) {
+        sequencer.addGatingSequences(terminal);
+        for (Sequence stage : stages.keySet()) {
+            sequencer.removeGatingSequence(stage);
+        }
+        terminated = true;
+    }
+
+    static int partitionOf(long key, int partitions) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        h ^= h >>> 32;
+        return (int) ((h & Long.MAX_VALUE) % partitions);
+    }
+
+    private Set<Sequence> upstreamOf(Sequence[] dependencies) {
+        Set<Sequence> upstream = Collections.newSetFromMap(new IdentityHashMap<Sequence, Boolean>());
+        Deque<Sequence> pending = new ArrayDeque<>(Arrays.asList(dependencies));
+        while (!pending.isEmpty()) {
+            Sequence sequence = pending.pop();
+            Sequence[] next = stages.get(sequence);
+            if (upstream.add(sequence) && null != next) {
+                pending.addAll(Arrays.asList(next));
+            }
+        }
+        return upstream;
+    }
 }
@@ -0,0 +1,119 @@
+package yow2013.immutable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.WorkHandler;
+
+/**
+ * {@link com.lmax.disruptor.WorkProcessor} for a {@link CustomRingBuffer}.
+ * Workers in a {@link CustomWorkerPool} claim sequences from a shared work
+ * sequence, so each event is taken, and its slot cleared, by exactly one
+ * worker.
+ */
+public final class CustomWorkProcessor<T> implements EventProcessor {
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final EventAccessor<T> accessor;
+    private final SequenceBarrier barrier;
+    private final WorkHandler<T> handler;
+    private final ExceptionHandler exceptionHandler;
+    private final Sequence workSequence;
+
+    CustomWorkProcessor(EventAccessor<T> accessor, SequenceBarrier barrier,
+            WorkHandler<T> handler, ExceptionHandler exceptionHandler,
+            Sequence workSequence) {
+        this.accessor = accessor;
+        this.barrier = barrier;
+        this.handler = handler;
+        this.exceptionHandler = exceptionHandler;
+        this.workSequence = workSequence;
+    }
+
+    @Override
+    public Sequence getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void halt() {
+        running.set(false);
+        barrier.alert();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Thread is already running");
+        }
+        barrier.clearAlert();
+
+        notifyStart();
+
+        boolean processed = true;
+        long cachedAvailable = Long.MIN_VALUE;
+        long next = sequence.get();
+        T event = null;
+        while (true) {
+            try {
+                if (processed) {
+                    processed = false;
+                    do {
+                        next = workSequence.get() + 1L;
+                        sequence.set(next - 1L);
+                    } while (!workSequence.compareAndSet(next - 1L, next));
+                }
+
+                if (cachedAvailable >= next) {
+                    event = accessor.take(next);
+                    handler.onEvent(event);
+                    processed = true;
+                } else {
+                    cachedAvailable = barrier.waitFor(next);
+                }
+            } catch (AlertException ex) {
+                if (!running.get()) {
+                    break;
+                }
+            } catch (Throwable ex) {
+                exceptionHandler.handleEventException(ex, next, event);
+                processed = true;
+            }
+        }
+
+        notifyShutdown();
+
+        running.set(false);
+    }
+
+    private void notifyStart() {
+        if (handler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) handler).onStart();
+            } catch (Throwable ex) {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    private void notifyShutdown() {
+        if (handler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) handler).onShutdown();
+            } catch (Throwable ex) {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
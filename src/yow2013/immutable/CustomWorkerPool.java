@@ -0,0 +1,69 @@
+package yow2013.immutable;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * A group of {@link CustomWorkProcessor}s sharing one work sequence. Created
+ * with {@link CustomRingBuffer#createWorkerPool}.
+ */
+public final class CustomWorkerPool<T> {
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final Sequence workSequence;
+    private final CustomWorkProcessor<?>[] processors;
+
+    CustomWorkerPool(Sequence workSequence, CustomWorkProcessor<?>[] processors) {
+        this.workSequence = workSequence;
+        this.processors = processors;
+    }
+
+    /**
+     * The sequences of all workers plus the shared work sequence, to gate the
+     * producer on or to use as a dependency.
+     */
+    public Sequence[] getWorkerSequences() {
+        Sequence[] sequences = new Sequence[processors.length + 1];
+        for (int i = 0; i < processors.length; i++) {
+            sequences[i] = processors[i].getSequence();
+        }
+        sequences[processors.length] = workSequence;
+        return sequences;
+    }
+
+    public void start(Executor executor) {
+        if (!started.compareAndSet(false, true)) {
+            throw new IllegalStateException(
+                    "WorkerPool has already been started and cannot be restarted until halted.");
+        }
+
+        for (CustomWorkProcessor<?> processor : processors) {
+            executor.execute(processor);
+        }
+    }
+
+    /**
+     * Waits until every sequence up to {@code sequence} has been handled,
+     * then halts the workers.
+     */
+    public void drainAndHalt(long sequence) {
+        Sequence[] sequences = getWorkerSequences();
+        while (Util.getMinimumSequence(sequences) < sequence) {
+            Thread.yield();
+        }
+        halt();
+    }
+
+    public void halt() {
+        for (CustomWorkProcessor<?> processor : processors) {
+            processor.halt();
+        }
+        started.set(false);
+    }
+
+    public boolean isRunning() {
+        return started.get();
+    }
+}
@@ -2,4 +2,6 @@ package yow2013.immutable;
 
 public interface EventAccessor<T> {
     T take(long sequence);
+
+    T peek(long sequence);
 }
@@ -0,0 +1,9 @@
+package yow2013.immutable;
+
+/**
+ * Extracts the partitioning key from an event. Events with the same key are
+ * handled by the same partition, in sequence order.
+ */
+public interface EventKey<T> {
+    long keyOf(T event);
+}
@@ -0,0 +1,85 @@
+package yow2013.immutable;
+
+import com.lmax.disruptor.EventFactory;
+import com.lmax.disruptor.Sequence;
+
+/**
+ * Single-producer/single-consumer return path for events. The terminal
+ * consumer releases events it has finished with and the producer acquires
+ * them for reuse, falling back to the factory if the pool is empty. Events
+ * released into a full pool are dropped for the GC.
+ * <p>
+ * The pool is pre-filled to capacity, so sizing it to the ring means a
+ * steady-state producer never allocates.
+ */
+public class EventPool<T> {
+    private final EventFactory<T> factory;
+    private final Object[] pool;
+    private final int mask;
+
+    private final Sequence acquired = new Sequence(0);
+    private final Sequence released;
+
+    private long acquireIndex = 0;
+    private long releasedCache;
+
+    private long releaseIndex;
+    private long acquiredCache = 0;
+
+    public EventPool(EventFactory<T> factory, int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of 2");
+        }
+
+        this.factory = factory;
+        this.pool = new Object[capacity];
+        this.mask = capacity - 1;
+
+        for (int i = 0; i < capacity; i++) {
+            pool[i] = factory.newInstance();
+        }
+        releaseIndex = capacity;
+        releasedCache = capacity;
+        released = new Sequence(capacity);
+    }
+
+    /**
+     * Called by the producer only.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquire() {
+        long index = acquireIndex;
+        if (index == releasedCache) {
+            releasedCache = released.get();
+            if (index == releasedCache) {
+                return factory.newInstance();
+            }
+        }
+
+        int slot = (int) index & mask;
+        T t = (T) pool[slot];
+        pool[slot] = null;
+        acquireIndex = index + 1;
+        acquired.set(index + 1);
+
+        return t;
+    }
+
+    /**
+     * Called by the terminal consumer only, once nothing references the
+     * event any more.
+     */
+    public void release(T t) {
+        long index = releaseIndex;
+        if (index - acquiredCache == pool.length) {
+            acquiredCache = acquired.get();
+            if (index - acquiredCache == pool.length) {
+                return;
+            }
+        }
+
+        pool[(int) index & mask] = t;
+        releaseIndex = index + 1;
+        released.set(index + 1);
+    }
+}
@@ -0,0 +1,193 @@
+package yow2013.immutable;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.EventTranslatorOneArg;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Throughput of a multi-producer {@link CustomRingBuffer} against the
+ * holder-based {@link RingBuffer#createMultiProducer} for 1 to 16 producers
+ * sharing a fixed number of events, with a single consumer. Once claiming a
+ * sequence dominates, adding producers stops adding throughput.
+ * <p>
+ * Each event carries its producer and that producer's count, and the
+ * consumer checks that it sees every producer's events exactly once and in
+ * order.
+ */
+public class MultiProducerScalingBenchmark
+{
+    private static final int SIZE = 1 << 16;
+    private static final long ITERATIONS = 20_000_000L;
+    private static final int MAX_PRODUCERS = 16;
+
+    private static final EventTranslatorOneArg<EventHolder, SimpleEvent> TRANSLATOR =
+        new EventTranslatorOneArg<EventHolder, SimpleEvent>()
+        {
+            @Override
+            public void translateTo(EventHolder holder, long sequence, SimpleEvent event)
+            {
+                holder.event = event;
+            }
+        };
+
+    private enum Mode
+    {
+        HOLDER, CUSTOM
+    }
+
+    private static final class CheckingHandler implements EventHandler<SimpleEvent>
+    {
+        private final long[] expected;
+        private long count;
+        private String failure;
+
+        CheckingHandler(int producers)
+        {
+            expected = new long[producers];
+        }
+
+        @Override
+        public void onEvent(SimpleEvent event, long sequence, boolean endOfBatch)
+        {
+            // record rather than throw, so the consumer keeps up with the cursor
+            int producer = (int) event.getId();
+            if (null == failure && event.getCounter() != expected[producer])
+            {
+                failure = "Event " + sequence + " is " + event.getCounter() + " from producer " + producer
+                          + ", expected " + expected[producer];
+            }
+            expected[producer] = event.getCounter() + 1;
+            count++;
+        }
+
+        void verify(long perProducer)
+        {
+            if (null != failure)
+            {
+                throw new IllegalStateException(failure);
+            }
+            for (int producer = 0; producer < expected.length; producer++)
+            {
+                if (expected[producer] != perProducer)
+                {
+                    throw new IllegalStateException("Producer " + producer + " ended at " + expected[producer]
+                                                    + ", expected " + perProducer);
+                }
+            }
+            if (count != perProducer * expected.length)
+            {
+                throw new IllegalStateException("Consumed " + count + " events, expected "
+                                                + perProducer * expected.length);
+            }
+        }
+    }
+
+    public void run() throws InterruptedException
+    {
+        for (Mode mode : Mode.values())
+        {
+            for (int producers = 1; producers <= MAX_PRODUCERS; producers <<= 1)
+            {
+                long opsPerSecond = run(mode, producers);
+                System.out.format("%s %s producers=%d %,d ops/sec%n", getClass().getSimpleName(), mode,
+                                  producers, opsPerSecond);
+            }
+        }
+    }
+
+    private long run(Mode mode, int producers) throws InterruptedException
+    {
+        final long perProducer = ITERATIONS / producers;
+        final long total = perProducer * producers;
+
+        final RingBuffer<EventHolder> holderBuffer;
+        final CustomRingBuffer<SimpleEvent> customBuffer;
+        CheckingHandler handler = new CheckingHandler(producers);
+        EventProcessor processor;
+        if (mode == Mode.HOLDER)
+        {
+            holderBuffer = RingBuffer.createMultiProducer(EventHolder.FACTORY, SIZE, new YieldingWaitStrategy());
+            customBuffer = null;
+            processor = new BatchEventProcessor<>(holderBuffer, holderBuffer.newBarrier(),
+                                                  new EventHolderHandler(handler));
+            holderBuffer.addGatingSequences(processor.getSequence());
+        }
+        else
+        {
+            holderBuffer = null;
+            customBuffer = CustomRingBuffer.createMultiProducer(SIZE, new YieldingWaitStrategy());
+            processor = customBuffer.createHandler(handler);
+        }
+
+        Thread consumer = new Thread(processor);
+        consumer.start();
+
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++)
+        {
+            final int producer = i;
+            threads[i] = new Thread()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        start.await();
+                    }
+                    catch (InterruptedException e)
+                    {
+                        return;
+                    }
+
+                    for (long l = 0; l < perProducer; l++)
+                    {
+                        SimpleEvent e = new SimpleEvent(producer, l, l, l);
+                        if (null != holderBuffer)
+                        {
+                            holderBuffer.publishEvent(TRANSLATOR, e);
+                        }
+                        else
+                        {
+                            customBuffer.put(e);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+
+        while (processor.getSequence().get() < total - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - begin;
+
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        processor.halt();
+        consumer.join();
+        handler.verify(perProducer);
+
+        return (total * TimeUnit.SECONDS.toNanos(1)) / duration;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        new MultiProducerScalingBenchmark().run();
+    }
+}
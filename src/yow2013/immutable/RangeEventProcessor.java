@@ -0,0 +1,116 @@
+package yow2013.immutable;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.FatalExceptionHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.TimeoutException;
+
+/**
+ * {@link com.lmax.disruptor.BatchEventProcessor} that passes each batch the
+ * barrier releases to a {@link RangeHandler} as a single range. If the
+ * handler throws, the exception handler is given the last sequence of the
+ * range and the whole range is skipped.
+ */
+public final class RangeEventProcessor<A> implements EventProcessor {
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final Sequence sequence = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+    private final A source;
+    private final SequenceBarrier barrier;
+    private final RangeHandler<A> handler;
+    private ExceptionHandler exceptionHandler = new FatalExceptionHandler();
+
+    public RangeEventProcessor(A source, SequenceBarrier barrier,
+            RangeHandler<A> handler) {
+        this.source = source;
+        this.barrier = barrier;
+        this.handler = handler;
+    }
+
+    public void setExceptionHandler(ExceptionHandler exceptionHandler) {
+        if (null == exceptionHandler) {
+            throw new NullPointerException();
+        }
+        this.exceptionHandler = exceptionHandler;
+    }
+
+    @Override
+    public Sequence getSequence() {
+        return sequence;
+    }
+
+    @Override
+    public void halt() {
+        running.set(false);
+        barrier.alert();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    @Override
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Thread is already running");
+        }
+        barrier.clearAlert();
+
+        notifyStart();
+
+        long next = sequence.get() + 1L;
+        long available = next - 1L;
+        try {
+            while (true) {
+                try {
+                    available = barrier.waitFor(next);
+                    if (available >= next) {
+                        handler.onRange(source, next, available);
+                        sequence.set(available);
+                        next = available + 1L;
+                    }
+                } catch (TimeoutException ex) {
+                    // no timeout is configured on the barrier
+                } catch (AlertException ex) {
+                    if (!running.get()) {
+                        break;
+                    }
+                } catch (Throwable ex) {
+                    exceptionHandler.handleEventException(ex, available, null);
+                    sequence.set(available);
+                    next = available + 1L;
+                }
+            }
+        } finally {
+            notifyShutdown();
+            running.set(false);
+        }
+    }
+
+    private void notifyStart() {
+        if (handler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) handler).onStart();
+            } catch (Throwable ex) {
+                exceptionHandler.handleOnStartException(ex);
+            }
+        }
+    }
+
+    private void notifyShutdown() {
+        if (handler instanceof LifecycleAware) {
+            try {
+                ((LifecycleAware) handler).onShutdown();
+            } catch (Throwable ex) {
+                exceptionHandler.handleOnShutdownException(ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package yow2013.immutable;
+
+/**
+ * Handles every event available to a {@link RangeEventProcessor} in one call,
+ * rather than one call per event. The handler reads {@code lo} to {@code hi}
+ * inclusive from {@code source}, so it can sort, coalesce or write the batch
+ * out as a whole.
+ *
+ * @param <A> how the handler reads events, e.g. an {@link EventAccessor} or a
+ *            {@link com.lmax.disruptor.RingBuffer}
+ */
+public interface RangeHandler<A> {
+    void onRange(A source, long lo, long hi) throws Exception;
+}
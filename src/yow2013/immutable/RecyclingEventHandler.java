@@ -0,0 +1,47 @@
+package yow2013.immutable;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+
+/**
+ * Returns each event to an {@link EventPool} once the delegate has handled
+ * it. Only use on the last handler to see the event.
+ */
+public class RecyclingEventHandler<T> implements EventHandler<T>, LifecycleAware
+{
+    private final EventHandler<T> delegate;
+    private final LifecycleAware lifecycle;
+    private final EventPool<T> pool;
+
+    public RecyclingEventHandler(EventHandler<T> delegate, EventPool<T> pool)
+    {
+        this.delegate = delegate;
+        this.lifecycle = delegate instanceof LifecycleAware ? (LifecycleAware) delegate : null;
+        this.pool = pool;
+    }
+
+    @Override
+    public void onEvent(T event, long sequence, boolean endOfBatch) throws Exception
+    {
+        delegate.onEvent(event, sequence, endOfBatch);
+        pool.release(event);
+    }
+
+    @Override
+    public void onStart()
+    {
+        if (null != lifecycle)
+        {
+            lifecycle.onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown()
+    {
+        if (null != lifecycle)
+        {
+            lifecycle.onShutdown();
+        }
+    }
+}
@@ -1,10 +1,24 @@
 package yow2013.immutable;
 
+import com.lmax.disruptor.EventFactory;
+
+/**
+ * Immutable once published. Events recycled through a {@link Pool} are
+ * re-initialised by the pool as the producer acquires them; nothing else
+ * can change an event after it is constructed.
+ */
 public class SimpleEvent {
-    private final long id;
-    private final long v1;
-    private final long v2;
-    private final long v3;
+    private static final EventFactory<SimpleEvent> FACTORY =
+            new EventFactory<SimpleEvent>() {
+        public SimpleEvent newInstance() {
+            return new SimpleEvent(0, 0, 0, 0);
+        }
+    };
+
+    private long id;
+    private long v1;
+    private long v2;
+    private long v3;
 
     public SimpleEvent(long id, long v1, long v2, long v3) {
         this.id = id;
@@ -12,9 +26,51 @@ public class SimpleEvent {
         this.v2 = v2;
         this.v3 = v3;
     }
-    
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public long getV1()
+    {
+        return v1;
+    }
+
+    public long getV2()
+    {
+        return v2;
+    }
+
+    public long getV3()
+    {
+        return v3;
+    }
+
     public long getCounter()
     {
         return v1;
     }
-}
\ No newline at end of file
+
+    /**
+     * {@link EventPool} of {@link SimpleEvent}s that hands them out
+     * re-initialised, so recycling does not need a mutable event.
+     */
+    public static final class Pool extends EventPool<SimpleEvent> {
+        public Pool(int capacity) {
+            super(FACTORY, capacity);
+        }
+
+        /**
+         * Called by the producer only.
+         */
+        public SimpleEvent acquire(long id, long v1, long v2, long v3) {
+            SimpleEvent event = acquire();
+            event.id = id;
+            event.v1 = v1;
+            event.v2 = v2;
+            event.v3 = v3;
+            return event;
+        }
+    }
+}
@@ -1,20 +1,34 @@
 package yow2013.immutable;
 
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 
+import yow2013.ThreadCpuTime;
+import yow2013.WaitStrategies;
+
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.EventTranslatorOneArg;
 import com.lmax.disruptor.RingBuffer;
-import com.lmax.disruptor.YieldingWaitStrategy;
 
 public class SimplePerformanceTest {
     private final RingBuffer<EventHolder> ringBuffer;
     private final EventHolderHandler eventHolderHandler;
+    private final SimpleEvent.Pool pool;
+    private final WaitStrategies waitStrategy;
 
-    public SimplePerformanceTest() {
+    public SimplePerformanceTest(WaitStrategies waitStrategy, boolean recycle) {
+        this.waitStrategy = waitStrategy;
         ringBuffer = RingBuffer.createSingleProducer(EventHolder.FACTORY,
-                Constants.SIZE, new YieldingWaitStrategy());
-        eventHolderHandler = new EventHolderHandler(new SimpleEventHandler());
+                Constants.SIZE, waitStrategy.create());
+        if (recycle) {
+            pool = new SimpleEvent.Pool(Constants.SIZE);
+            eventHolderHandler = new EventHolderHandler(
+                    new RecyclingEventHandler<>(new SimpleEventHandler(), pool));
+        } else {
+            pool = null;
+            eventHolderHandler = new EventHolderHandler(new SimpleEventHandler());
+        }
     }
 
     public void run() {
@@ -33,9 +47,14 @@ public class SimplePerformanceTest {
         Thread t = new Thread(batchEventProcessor);
         t.start();
 
+        long start = System.nanoTime();
+        long producerCpu = ThreadCpuTime.current();
+        long consumerCpu = ThreadCpuTime.of(t);
+
         long iterations = Constants.ITERATIONS;
         for (long l = 0; l < iterations; l++) {
-            SimpleEvent e = new SimpleEvent(l, l, l, l);
+            SimpleEvent e = null != pool ? pool.acquire(l, l, l, l)
+                    : new SimpleEvent(l, l, l, l);
             ringBuffer.publishEvent(TRANSLATOR, e);
         }
 
@@ -43,8 +62,18 @@ public class SimplePerformanceTest {
             LockSupport.parkNanos(1);
         }
 
+        long duration = System.nanoTime() - start;
+        producerCpu = ThreadCpuTime.current() - producerCpu;
+        consumerCpu = ThreadCpuTime.of(t) - consumerCpu;
+
         batchEventProcessor.halt();
         t.join();
+
+        System.out.format("%s%s %s %,d ops/sec, producer %s, consumer %s%n",
+                getClass().getSimpleName(), null != pool ? " (recycling)" : "",
+                waitStrategy, (iterations * TimeUnit.SECONDS.toNanos(1)) / duration,
+                ThreadCpuTime.format(producerCpu, duration),
+                ThreadCpuTime.format(consumerCpu, duration));
     }
 
     private static final EventTranslatorOneArg<EventHolder, SimpleEvent> TRANSLATOR = new EventTranslatorOneArg<EventHolder, SimpleEvent>() {
@@ -55,6 +84,9 @@ public class SimplePerformanceTest {
     };
 
     public static void main(String[] args) {
-        new SimplePerformanceTest().run();
+        boolean recycle = Arrays.asList(args).contains("recycle");
+        for (WaitStrategies waitStrategy : WaitStrategies.fromArgs(args)) {
+            new SimplePerformanceTest(waitStrategy, recycle).run();
+        }
     }
 }
@@ -18,6 +18,7 @@ package yow2013.immutable;
 import static com.lmax.disruptor.RingBuffer.createSingleProducer;
 
 import java.io.PrintStream;
+import java.util.Arrays;
 import java.util.concurrent.BrokenBarrierException;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
@@ -27,12 +28,15 @@ import java.util.concurrent.TimeUnit;
 
 import org.HdrHistogram.Histogram;
 
+import yow2013.LatencyTrace;
+import yow2013.ThreadCpuTime;
+import yow2013.TracingEventHandler;
+import yow2013.WaitStrategies;
+
 import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.EventHandler;
 import com.lmax.disruptor.LifecycleAware;
 import com.lmax.disruptor.RingBuffer;
-import com.lmax.disruptor.SequenceBarrier;
-import com.lmax.disruptor.YieldingWaitStrategy;
 import com.lmax.disruptor.util.DaemonThreadFactory;
 
 /**
@@ -75,21 +79,43 @@ public final class SimplePingPongLatencyTest
 
     ///////////////////////////////////////////////////////////////////////////////////////////////
 
-    private final RingBuffer<EventHolder> pingBuffer =
-        createSingleProducer(EventHolder.FACTORY, BUFFER_SIZE, new YieldingWaitStrategy());
-    private final RingBuffer<EventHolder> pongBuffer =
-            createSingleProducer(EventHolder.FACTORY, BUFFER_SIZE, new YieldingWaitStrategy());
+    private final WaitStrategies waitStrategy;
+    private final long pauseNanos;
+    private final long iterations;
+    private final RingBuffer<EventHolder> pingBuffer;
+    private final RingBuffer<EventHolder> pongBuffer;
+
+    private final SimpleEvent.Pool pool;
+    private final LatencyTrace pingTrace;
+    private final LatencyTrace pongTrace;
+
+    private final Pinger pinger;
+    private final BatchEventProcessor<EventHolder> pingProcessor;
 
-    private final SequenceBarrier pongBarrier = pongBuffer.newBarrier();
-    private final Pinger pinger = new Pinger(pingBuffer, ITERATIONS, PAUSE_NANOS);
-    private final BatchEventProcessor<EventHolder> pingProcessor =
-        new BatchEventProcessor<EventHolder>(pongBuffer, pongBarrier, pinger);
+    private final Ponger ponger;
+    private final BatchEventProcessor<EventHolder> pongProcessor;
 
-    private final SequenceBarrier pingBarrier = pingBuffer.newBarrier();
-    private final Ponger ponger = new Ponger(pongBuffer);
-    private final BatchEventProcessor<EventHolder> pongProcessor =
-        new BatchEventProcessor<EventHolder>(pingBuffer, pingBarrier, ponger);
+    public SimplePingPongLatencyTest(WaitStrategies waitStrategy, long pauseNanos, boolean recycle, boolean trace)
     {
+        this.waitStrategy = waitStrategy;
+        this.pauseNanos = pauseNanos;
+        // keep each run about as long as the default rate's
+        this.iterations = Math.min(ITERATIONS, (ITERATIONS * PAUSE_NANOS) / Math.max(PAUSE_NANOS, pauseNanos));
+        pingBuffer = createSingleProducer(EventHolder.FACTORY, BUFFER_SIZE, waitStrategy.create());
+        pongBuffer = createSingleProducer(EventHolder.FACTORY, BUFFER_SIZE, waitStrategy.create());
+
+        pool = recycle ? new SimpleEvent.Pool(BUFFER_SIZE) : null;
+        pingTrace = trace ? new LatencyTrace("ping", BUFFER_SIZE, 1) : null;
+        pongTrace = trace ? new LatencyTrace("pong", BUFFER_SIZE, 1) : null;
+
+        pinger = new Pinger(pingBuffer, iterations, pauseNanos, pool, pingTrace);
+        pingProcessor = new BatchEventProcessor<EventHolder>(pongBuffer, pongBuffer.newBarrier(),
+                                                             traced(pongTrace, pinger));
+
+        ponger = new Ponger(pongBuffer, pongTrace);
+        pongProcessor = new BatchEventProcessor<EventHolder>(pingBuffer, pingBuffer.newBarrier(),
+                                                             traced(pingTrace, ponger));
+
         pingBuffer.addGatingSequences(pongProcessor.getSequence());
         pongBuffer.addGatingSequences(pingProcessor.getSequence());
     }
@@ -104,19 +130,49 @@ public final class SimplePingPongLatencyTest
         {
             System.gc();
             histogram.reset();
+            if (null != pingTrace)
+            {
+                pingTrace.reset();
+                pongTrace.reset();
+            }
 
             runDisruptorPass();
 
-            if (histogram.getHistogramData().getTotalCount() < ITERATIONS)
+            if (histogram.getHistogramData().getTotalCount() < iterations)
             {
                 throw new IllegalStateException();
             }
             
-            System.out.format("%s run %d Disruptor %s\n", getClass().getSimpleName(), Long.valueOf(i), histogram);
+            System.out.format("%s%s %s run %d Disruptor %s\n", getClass().getSimpleName(),
+                              null != pool ? " (recycling)" : "", waitStrategy, Long.valueOf(i), histogram);
             dumpHistogram(histogram, System.out);
+            printSummary(histogram, System.out);
+            if (null != pingTrace)
+            {
+                pingTrace.outputPercentileDistribution(System.out, 1000.0);
+                pongTrace.outputPercentileDistribution(System.out, 1000.0);
+            }
         }
     }
 
+    private void printSummary(Histogram histogram, final PrintStream out)
+    {
+        long elapsed = pinger.getElapsedNanos();
+        out.format("%s%s %s pause %,d ns: %,d round trips/sec, p50 %,d ns, p99 %,d ns, p99.99 %,d ns, pinger %s, ponger %s%n",
+                   getClass().getSimpleName(), null != pool ? " (recycling)" : "", waitStrategy, pauseNanos,
+                   (iterations * TimeUnit.SECONDS.toNanos(1)) / elapsed,
+                   histogram.getHistogramData().getValueAtPercentile(50.0),
+                   histogram.getHistogramData().getValueAtPercentile(99.0),
+                   histogram.getHistogramData().getValueAtPercentile(99.99),
+                   ThreadCpuTime.format(pinger.getCpuNanos(), elapsed),
+                   ThreadCpuTime.format(ponger.getCpuNanos(), elapsed));
+    }
+
+    private static EventHandler<EventHolder> traced(LatencyTrace trace, EventHandler<EventHolder> handler)
+    {
+        return null != trace ? new TracingEventHandler<>(trace, 0, handler) : handler;
+    }
+
     private static void dumpHistogram(Histogram histogram, final PrintStream out)
     {
         histogram.getHistogramData().outputPercentileDistribution(out, 1, 1000.0);
@@ -125,9 +181,10 @@ public final class SimplePingPongLatencyTest
     private void runDisruptorPass() throws InterruptedException, BrokenBarrierException
     {
         CountDownLatch latch = new CountDownLatch(1);
+        CountDownLatch stopped = new CountDownLatch(1);
         CyclicBarrier barrier = new CyclicBarrier(3);
         pinger.reset(barrier, latch, histogram);
-        ponger.reset(barrier);
+        ponger.reset(barrier, stopped);
 
         executor.submit(pongProcessor);
         executor.submit(pingProcessor);
@@ -137,12 +194,43 @@ public final class SimplePingPongLatencyTest
 
         pingProcessor.halt();
         pongProcessor.halt();
+        stopped.await();
     }
 
     public static void main(String[] args) throws Exception
     {
-        SimplePingPongLatencyTest test = new SimplePingPongLatencyTest();
-        test.runTest();
+        boolean recycle = Arrays.asList(args).contains("recycle");
+        boolean trace = Arrays.asList(args).contains("trace");
+        for (long pauseNanos : pausesFromArgs(args))
+        {
+            for (WaitStrategies waitStrategy : WaitStrategies.fromArgs(args))
+            {
+                SimplePingPongLatencyTest test = new SimplePingPongLatencyTest(waitStrategy, pauseNanos, recycle, trace);
+                test.runTest();
+            }
+        }
+    }
+
+    /**
+     * Pauses between round trips, which set the offered rate, from a
+     * "pause=500,5000,50000" argument in nanoseconds.
+     */
+    private static long[] pausesFromArgs(String[] args)
+    {
+        for (String arg : args)
+        {
+            if (arg.startsWith("pause="))
+            {
+                String[] values = arg.substring("pause=".length()).split(",");
+                long[] pauses = new long[values.length];
+                for (int i = 0; i < values.length; i++)
+                {
+                    pauses[i] = Long.parseLong(values[i].trim());
+                }
+                return pauses;
+            }
+        }
+        return new long[] {PAUSE_NANOS};
     }
 
     private static class Pinger implements EventHandler<EventHolder>, LifecycleAware
@@ -150,18 +238,27 @@ public final class SimplePingPongLatencyTest
         private final RingBuffer<EventHolder> buffer;
         private final long maxEvents;
         private final long pauseTimeNs;
+        private final SimpleEvent.Pool pool;
+        private final LatencyTrace trace;
 
         private long counter = 0;
         private CyclicBarrier barrier;
         private CountDownLatch latch;
         private Histogram histogram;
         private long t0;
+        private long startNanos;
+        private long elapsedNanos;
+        private long cpuStart;
+        private long cpuNanos;
 
-        public Pinger(RingBuffer<EventHolder> buffer, long maxEvents, long pauseTimeNs)
+        public Pinger(RingBuffer<EventHolder> buffer, long maxEvents, long pauseTimeNs, SimpleEvent.Pool pool,
+                      LatencyTrace trace)
         {
             this.buffer = buffer;
             this.maxEvents = maxEvents;
             this.pauseTimeNs = pauseTimeNs;
+            this.pool = pool;
+            this.trace = trace;
         }
 
         @Override
@@ -182,9 +279,15 @@ public final class SimplePingPongLatencyTest
             }
             else
             {
+                elapsedNanos = System.nanoTime() - startNanos;
+                cpuNanos = ThreadCpuTime.current() - cpuStart;
                 latch.countDown();
             }
             
+            if (null != pool)
+            {
+                pool.release(holder.event);
+            }
             holder.event = null;
         }
 
@@ -192,7 +295,12 @@ public final class SimplePingPongLatencyTest
         {
             t0 = System.nanoTime();
             long next = buffer.next();
-            buffer.get(next).event = new SimpleEvent(t0, counter, counter, counter);
+            buffer.get(next).event = null != pool ? pool.acquire(t0, counter, counter, counter)
+                                                  : new SimpleEvent(t0, counter, counter, counter);
+            if (null != trace)
+            {
+                trace.publishing(next, t0);
+            }
             buffer.publish(next);
 
             counter++;
@@ -206,6 +314,8 @@ public final class SimplePingPongLatencyTest
                 barrier.await();
 
                 Thread.sleep(1000);
+                startNanos = System.nanoTime();
+                cpuStart = ThreadCpuTime.current();
                 send();
             }
             catch (Exception e)
@@ -227,25 +337,50 @@ public final class SimplePingPongLatencyTest
 
             counter = 0;
         }
+
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        public long getCpuNanos()
+        {
+            return cpuNanos;
+        }
     }
 
     private static class Ponger implements EventHandler<EventHolder>, LifecycleAware
     {
         private final RingBuffer<EventHolder> buffer;
+        private final LatencyTrace trace;
 
         private CyclicBarrier barrier;
+        private CountDownLatch stopped;
+        private long cpuStart;
+        private long cpuNanos;
 
-        public Ponger(RingBuffer<EventHolder> buffer)
+        public Ponger(RingBuffer<EventHolder> buffer, LatencyTrace trace)
         {
             this.buffer = buffer;
+            this.trace = trace;
         }
 
         @Override
         public void onEvent(EventHolder holder, long sequence, boolean endOfBatch) throws Exception
         {
+            if (0 == cpuStart)
+            {
+                // only count from the first ping, not the pinger's warm-up sleep
+                cpuStart = ThreadCpuTime.current();
+            }
+            long claimNanos = null != trace ? System.nanoTime() : 0L;
             long next = buffer.next();
             buffer.get(next).event = holder.event;
             holder.event = null;
+            if (null != trace)
+            {
+                trace.publishing(next, claimNanos);
+            }
             buffer.publish(next);
         }
 
@@ -265,11 +400,20 @@ public final class SimplePingPongLatencyTest
         @Override
         public void onShutdown()
         {
+            cpuNanos = ThreadCpuTime.current() - cpuStart;
+            stopped.countDown();
         }
 
-        public void reset(CyclicBarrier barrier)
+        public void reset(CyclicBarrier barrier, CountDownLatch stopped)
         {
             this.barrier = barrier;
+            this.stopped = stopped;
+            cpuStart = 0;
+        }
+
+        public long getCpuNanos()
+        {
+            return cpuNanos;
         }
     }
 }
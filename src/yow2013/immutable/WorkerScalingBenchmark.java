@@ -0,0 +1,164 @@
+package yow2013.immutable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.WorkHandler;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * Throughput of the work-pool and key-partitioned consumers of a
+ * {@link CustomRingBuffer} for 1 to 8 workers. Each event costs the handler
+ * {@link #WORK} rounds of an LCG so that there is something to scale.
+ */
+public class WorkerScalingBenchmark
+{
+    private static final int SIZE = 1 << 16;
+    private static final long ITERATIONS = 20_000_000L;
+    private static final int WORK = 100;
+    private static final int MAX_WORKERS = 8;
+
+    private static final EventKey<SimpleEvent> BY_ID = new EventKey<SimpleEvent>()
+    {
+        @Override
+        public long keyOf(SimpleEvent event)
+        {
+            return event.getId();
+        }
+    };
+
+    private static final class BusyHandler implements EventHandler<SimpleEvent>, WorkHandler<SimpleEvent>
+    {
+        private long sink;
+
+        @Override
+        public void onEvent(SimpleEvent event, long sequence, boolean endOfBatch)
+        {
+            onEvent(event);
+        }
+
+        @Override
+        public void onEvent(SimpleEvent event)
+        {
+            long x = event.getCounter();
+            for (int i = 0; i < WORK; i++)
+            {
+                x = x * 6364136223846793005L + 1442695040888963407L;
+            }
+            sink += x;
+        }
+    }
+
+    private enum Mode
+    {
+        POOL, PARTITIONED
+    }
+
+    private long sink;
+
+    public void run() throws InterruptedException
+    {
+        for (Mode mode : Mode.values())
+        {
+            for (int workers = 1; workers <= MAX_WORKERS; workers++)
+            {
+                long opsPerSecond = run(mode, workers);
+                System.out.format("%s %s workers=%d %,d ops/sec%n", getClass().getSimpleName(), mode,
+                                  workers, opsPerSecond);
+            }
+        }
+        System.out.println(sink);
+    }
+
+    private long run(Mode mode, int workers) throws InterruptedException
+    {
+        CustomRingBuffer<SimpleEvent> ringBuffer =
+            new CustomRingBuffer<>(new SingleProducerSequencer(SIZE, new YieldingWaitStrategy()));
+
+        BusyHandler[] handlers = new BusyHandler[workers];
+        for (int i = 0; i < workers; i++)
+        {
+            handlers[i] = new BusyHandler();
+        }
+
+        final List<Thread> threads = new ArrayList<>();
+        Executor executor = new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                Thread t = new Thread(command);
+                t.start();
+                threads.add(t);
+            }
+        };
+
+        CustomWorkerPool<SimpleEvent> pool = null;
+        BatchEventProcessor<EventAccessor<SimpleEvent>>[] partitions = null;
+        Sequence[] sequences;
+        if (mode == Mode.POOL)
+        {
+            pool = ringBuffer.createWorkerPool(handlers);
+            sequences = pool.getWorkerSequences();
+            pool.start(executor);
+        }
+        else
+        {
+            partitions = ringBuffer.createPartitionedHandlers(BY_ID, handlers);
+            sequences = Util.getSequencesFor(partitions);
+            for (BatchEventProcessor<EventAccessor<SimpleEvent>> partition : partitions)
+            {
+                executor.execute(partition);
+            }
+        }
+
+        long start = System.nanoTime();
+
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            ringBuffer.put(new SimpleEvent(l, l, l, l));
+        }
+
+        while (Util.getMinimumSequence(sequences) < ITERATIONS - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - start;
+
+        if (null != pool)
+        {
+            pool.halt();
+        }
+        else
+        {
+            for (BatchEventProcessor<EventAccessor<SimpleEvent>> partition : partitions)
+            {
+                partition.halt();
+            }
+        }
+        for (Thread t : threads)
+        {
+            t.join();
+        }
+        for (BusyHandler handler : handlers)
+        {
+            sink += handler.sink;
+        }
+
+        return (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration;
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        new WorkerScalingBenchmark().run();
+    }
+}
@@ -0,0 +1,108 @@
+package yow2013.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.lmax.disruptor.Cursored;
+import com.lmax.disruptor.Sequence;
+
+/**
+ * Counters for one consumer. They are written only by the consumer's thread,
+ * with ordered stores and no read-modify-write, and read by whatever polls
+ * the MBean. Nothing is allocated per event or per batch.
+ */
+public class ConsumerMetrics implements ConsumerMetricsMXBean {
+    private static final int EVENTS = 0;
+    private static final int BATCHES = 1;
+    private static final int WAIT_NANOS = 2;
+    private static final int HANDLER_NANOS = 3;
+
+    private final String name;
+    private final Cursored cursor;
+    private final AtomicLongArray counters = new AtomicLongArray(4);
+    private final AtomicLongArray batchSizes = new AtomicLongArray(Long.SIZE + 1);
+    private Sequence sequence;
+
+    // consumer thread only
+    private long events;
+    private long batches;
+    private long waitNanos;
+    private long handlerNanos;
+    private long lastWaitEnd;
+
+    ConsumerMetrics(String name, Cursored cursor) {
+        this.name = name;
+        this.cursor = cursor;
+    }
+
+    void setSequence(Sequence sequence) {
+        this.sequence = sequence;
+    }
+
+    void waited(long start, long end) {
+        waitNanos += end - start;
+        counters.lazySet(WAIT_NANOS, waitNanos);
+        lastWaitEnd = end;
+    }
+
+    void batch(int size, long end) {
+        events += size;
+        batches++;
+        handlerNanos += end - lastWaitEnd;
+
+        int bucket = Long.SIZE - Long.numberOfLeadingZeros(size);
+        batchSizes.lazySet(bucket, batchSizes.get(bucket) + 1);
+        counters.lazySet(EVENTS, events);
+        counters.lazySet(BATCHES, batches);
+        counters.lazySet(HANDLER_NANOS, handlerNanos);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getSequence() {
+        return sequence.get();
+    }
+
+    @Override
+    public long getLag() {
+        return cursor.getCursor() - sequence.get();
+    }
+
+    @Override
+    public long getEvents() {
+        return counters.get(EVENTS);
+    }
+
+    @Override
+    public long getBatches() {
+        return counters.get(BATCHES);
+    }
+
+    @Override
+    public double getMeanBatchSize() {
+        long batches = getBatches();
+        return 0 == batches ? 0.0 : (double) getEvents() / batches;
+    }
+
+    @Override
+    public long[] getBatchSizeHistogram() {
+        long[] histogram = new long[batchSizes.length()];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = batchSizes.get(i);
+        }
+        return histogram;
+    }
+
+    @Override
+    public long getWaitNanos() {
+        return counters.get(WAIT_NANOS);
+    }
+
+    @Override
+    public long getHandlerNanos() {
+        return counters.get(HANDLER_NANOS);
+    }
+}
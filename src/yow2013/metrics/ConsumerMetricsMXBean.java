@@ -0,0 +1,28 @@
+package yow2013.metrics;
+
+public interface ConsumerMetricsMXBean {
+    String getName();
+
+    long getSequence();
+
+    /**
+     * Ring cursor minus this consumer's sequence.
+     */
+    long getLag();
+
+    long getEvents();
+
+    long getBatches();
+
+    double getMeanBatchSize();
+
+    /**
+     * Element i counts batches of size [2^(i-1), 2^i), element 0 being
+     * unused.
+     */
+    long[] getBatchSizeHistogram();
+
+    long getWaitNanos();
+
+    long getHandlerNanos();
+}
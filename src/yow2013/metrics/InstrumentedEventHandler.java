@@ -0,0 +1,48 @@
+package yow2013.metrics;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+
+/**
+ * Counts events up to each end of batch, and records the batch's size and
+ * the time since the barrier released it.
+ */
+final class InstrumentedEventHandler<T> implements EventHandler<T>,
+        LifecycleAware {
+    private final EventHandler<T> delegate;
+    private final LifecycleAware lifecycle;
+    private final ConsumerMetrics metrics;
+    private int batchSize;
+
+    InstrumentedEventHandler(EventHandler<T> delegate, ConsumerMetrics metrics) {
+        this.delegate = delegate;
+        this.lifecycle = delegate instanceof LifecycleAware ? (LifecycleAware) delegate
+                : null;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void onEvent(T event, long sequence, boolean endOfBatch)
+            throws Exception {
+        delegate.onEvent(event, sequence, endOfBatch);
+        batchSize++;
+        if (endOfBatch) {
+            metrics.batch(batchSize, System.nanoTime());
+            batchSize = 0;
+        }
+    }
+
+    @Override
+    public void onStart() {
+        if (null != lifecycle) {
+            lifecycle.onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        if (null != lifecycle) {
+            lifecycle.onShutdown();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package yow2013.metrics;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.TimeoutException;
+
+/**
+ * Times each {@link #waitFor} into a consumer's metrics.
+ */
+final class InstrumentedSequenceBarrier implements SequenceBarrier {
+    private final SequenceBarrier delegate;
+    private final ConsumerMetrics metrics;
+
+    InstrumentedSequenceBarrier(SequenceBarrier delegate, ConsumerMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public long waitFor(long sequence) throws AlertException,
+            InterruptedException, TimeoutException {
+        long start = System.nanoTime();
+        long available = delegate.waitFor(sequence);
+        metrics.waited(start, System.nanoTime());
+        return available;
+    }
+
+    @Override
+    public long getCursor() {
+        return delegate.getCursor();
+    }
+
+    @Override
+    public boolean isAlerted() {
+        return delegate.isAlerted();
+    }
+
+    @Override
+    public void alert() {
+        delegate.alert();
+    }
+
+    @Override
+    public void clearAlert() {
+        delegate.clearAlert();
+    }
+
+    @Override
+    public void checkAlert() throws AlertException {
+        delegate.checkAlert();
+    }
+}
@@ -0,0 +1,168 @@
+package yow2013.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+
+/**
+ * Metrics for one ring and its consumers, published as MXBeans under
+ * {@code yow2013:type=Ring,name=<name>} and
+ * {@code yow2013:type=Consumer,ring=<name>,name=<consumer>}.
+ * <p>
+ * Consumers created through {@link #newProcessor} time their barrier waits
+ * and batches with single-writer counters. Producers that claim through
+ * {@link #next} only pay for the instrumentation when the ring is full:
+ * the claim is tried first, and only a failed try touches the shared stall
+ * counters and the clock.
+ */
+public class RingMetrics implements RingMetricsMXBean {
+    private static final String DOMAIN = "yow2013";
+
+    private final String name;
+    private final Sequencer sequencer;
+    private final List<ConsumerMetrics> consumers = new CopyOnWriteArrayList<>();
+    private final AtomicLong stalls = new AtomicLong();
+    private final AtomicLong stallNanos = new AtomicLong();
+
+    public RingMetrics(String name, Sequencer sequencer) {
+        this.name = name;
+        this.sequencer = sequencer;
+    }
+
+    /**
+     * Claims {@code n} slots, counting a stall if the ring is full.
+     */
+    public long next(int n) {
+        try {
+            return sequencer.tryNext(n);
+        } catch (InsufficientCapacityException e) {
+            long start = System.nanoTime();
+            long next = sequencer.next(n);
+            stalls.incrementAndGet();
+            stallNanos.addAndGet(System.nanoTime() - start);
+            return next;
+        }
+    }
+
+    /**
+     * Creates an instrumented processor, named after its position among this
+     * ring's consumers. The caller still adds its sequence to the gating
+     * sequences.
+     */
+    public <T> BatchEventProcessor<T> newProcessor(DataProvider<T> dataProvider,
+            SequenceBarrier barrier, EventHandler<T> handler) {
+        ConsumerMetrics metrics = new ConsumerMetrics("consumer-"
+                + consumers.size(), sequencer);
+        BatchEventProcessor<T> processor = new BatchEventProcessor<>(
+                dataProvider, new InstrumentedSequenceBarrier(barrier, metrics),
+                new InstrumentedEventHandler<>(handler, metrics));
+        metrics.setSequence(processor.getSequence());
+
+        consumers.add(metrics);
+        register(metrics, consumerName(metrics));
+
+        return processor;
+    }
+
+    public List<ConsumerMetrics> getConsumers() {
+        return consumers;
+    }
+
+    /**
+     * Registers this ring's MBean; consumers are registered as they are
+     * created.
+     */
+    public RingMetrics register() {
+        register(this, ringName());
+        return this;
+    }
+
+    public void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            server.unregisterMBean(ringName());
+            for (ConsumerMetrics consumer : consumers) {
+                server.unregisterMBean(consumerName(consumer));
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void register(Object mbean, ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean,
+                    objectName);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ObjectName ringName() {
+        return objectName("type=Ring,name=" + ObjectName.quote(name));
+    }
+
+    private ObjectName consumerName(ConsumerMetrics consumer) {
+        return objectName("type=Consumer,ring=" + ObjectName.quote(name)
+                + ",name=" + consumer.getName());
+    }
+
+    private static ObjectName objectName(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return sequencer.getBufferSize();
+    }
+
+    @Override
+    public long getCursor() {
+        return sequencer.getCursor();
+    }
+
+    @Override
+    public long getRemainingCapacity() {
+        return sequencer.remainingCapacity();
+    }
+
+    @Override
+    public long getMaxLag() {
+        long max = 0;
+        for (ConsumerMetrics consumer : consumers) {
+            max = Math.max(max, consumer.getLag());
+        }
+        return max;
+    }
+
+    @Override
+    public long getProducerStalls() {
+        return stalls.get();
+    }
+
+    @Override
+    public long getProducerStallNanos() {
+        return stallNanos.get();
+    }
+}
@@ -0,0 +1,23 @@
+package yow2013.metrics;
+
+public interface RingMetricsMXBean {
+    String getName();
+
+    int getBufferSize();
+
+    long getCursor();
+
+    long getRemainingCapacity();
+
+    /**
+     * The largest lag of any consumer.
+     */
+    long getMaxLag();
+
+    /**
+     * Claims that found the ring full and had to wait.
+     */
+    long getProducerStalls();
+
+    long getProducerStallNanos();
+}
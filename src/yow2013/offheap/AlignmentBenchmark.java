@@ -0,0 +1,163 @@
+package yow2013.offheap;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.Histogram;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Measures 1P1C throughput and producer-to-consumer latency of
+ * {@link OffHeapRingBuffer} across entry sizes, comparing the packed layout
+ * with cache line aligned slots, with and without a spacer line.
+ * Latency is sampled every {@link #SAMPLE_INTERVAL} events from a timestamp
+ * written into the slot.
+ */
+public class AlignmentBenchmark
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long ITERATIONS = 100_000_000L;
+    private static final int SAMPLE_INTERVAL = 1024;
+    private static final int[] ENTRY_SIZES = { 8, 16, 32, 64, 128, 256 };
+    private static final int RUNS = 3;
+
+    private enum Layout
+    {
+        PACKED, ALIGNED, SPACED;
+
+        OffHeapRingBuffer create(int entrySize)
+        {
+            SingleProducerSequencer sequencer = new SingleProducerSequencer(BUFFER_SIZE, new YieldingWaitStrategy());
+            switch (this)
+            {
+            case ALIGNED:
+                return OffHeapRingBuffer.aligned(sequencer, entrySize, 0);
+            case SPACED:
+                return OffHeapRingBuffer.aligned(sequencer, entrySize, 1);
+            default:
+                return new OffHeapRingBuffer(sequencer, entrySize);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        System.out.format("%6s %8s %6s %14s %10s %10s %10s%n",
+                          "entry", "layout", "stride", "ops/sec", "p50(ns)", "p99(ns)", "p99.9(ns)");
+
+        for (int entrySize : ENTRY_SIZES)
+        {
+            for (Layout layout : Layout.values())
+            {
+                for (int run = 0; run < RUNS; run++)
+                {
+                    System.gc();
+                    runPass(entrySize, layout);
+                }
+            }
+        }
+    }
+
+    private static void runPass(int entrySize, Layout layout) throws InterruptedException
+    {
+        OffHeapRingBuffer ringBuffer = layout.create(entrySize);
+        Histogram histogram = new Histogram(TimeUnit.SECONDS.toNanos(10), 3);
+
+        BatchEventProcessor<PayloadFlyweight> processor =
+            ringBuffer.createHandler(new PayloadFlyweight(entrySize), new LatencyHandler(histogram));
+        FlyweightAccessor<PayloadFlyweight> writer = ringBuffer.newAccessor(new PayloadFlyweight(entrySize));
+
+        Thread t = new Thread(processor);
+        t.start();
+
+        long start = System.nanoTime();
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            long next = ringBuffer.next();
+            writer.get(next).fill(0 == (l & (SAMPLE_INTERVAL - 1)) ? System.nanoTime() : 0L);
+            ringBuffer.publish(next);
+        }
+
+        while (processor.getSequence().get() != ITERATIONS - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+        long duration = System.nanoTime() - start;
+
+        processor.halt();
+        t.join();
+
+        System.out.format("%6d %8s %6d %,14d %10d %10d %10d%n",
+                          entrySize, layout, ringBuffer.getStride(),
+                          (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          histogram.getHistogramData().getValueAtPercentile(50),
+                          histogram.getHistogramData().getValueAtPercentile(99),
+                          histogram.getHistogramData().getValueAtPercentile(99.9));
+    }
+
+    private static final class PayloadFlyweight extends Flyweight
+    {
+        private final int size;
+
+        PayloadFlyweight(int size)
+        {
+            this.size = size;
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        void fill(long timestamp)
+        {
+            buffer.putLong(offset, timestamp);
+            for (int i = 8; i < size; i += 8)
+            {
+                buffer.putLong(offset + i, i);
+            }
+        }
+
+        long timestamp()
+        {
+            return buffer.getLong(offset);
+        }
+
+        long checksum()
+        {
+            long sum = 0;
+            for (int i = 8; i < size; i += 8)
+            {
+                sum += buffer.getLong(offset + i);
+            }
+            return sum;
+        }
+    }
+
+    private static final class LatencyHandler implements EventHandler<PayloadFlyweight>
+    {
+        private final Histogram histogram;
+        private long checksum;
+
+        LatencyHandler(Histogram histogram)
+        {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public void onEvent(PayloadFlyweight event, long sequence, boolean endOfBatch)
+        {
+            long timestamp = event.timestamp();
+            if (0 != timestamp)
+            {
+                histogram.recordValue(Math.min(System.nanoTime() - timestamp, histogram.getHighestTrackableValue()));
+            }
+            checksum += event.checksum();
+        }
+    }
+}
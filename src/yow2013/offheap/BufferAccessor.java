@@ -0,0 +1,30 @@
+package yow2013.offheap;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.lmax.disruptor.DataProvider;
+
+/**
+ * Per-thread handle that exposes a ring slot as a {@link ByteBuffer} whose
+ * position and limit bound the entry. The returned buffer is reused for every
+ * call, so a handle must not be shared between threads.
+ */
+public final class BufferAccessor implements DataProvider<ByteBuffer> {
+    private final OffHeapRingBuffer ringBuffer;
+    private final ByteBuffer view;
+    private final int entrySize;
+
+    BufferAccessor(OffHeapRingBuffer ringBuffer, ByteBuffer buffer, int entrySize) {
+        this.ringBuffer = ringBuffer;
+        this.view = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.entrySize = entrySize;
+    }
+
+    @Override
+    public ByteBuffer get(long sequence) {
+        int position = ringBuffer.offset(sequence);
+        view.limit(position + entrySize).position(position);
+        return view;
+    }
+}
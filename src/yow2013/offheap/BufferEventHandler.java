@@ -4,12 +4,33 @@ import java.nio.ByteBuffer;
 
 import com.lmax.disruptor.EventHandler;
 
+/**
+ * Decodes the {@link SimpleEventFlyweight} layout from the slot the buffer
+ * is positioned on.
+ */
 public class BufferEventHandler 
 implements EventHandler<ByteBuffer> {
+    private long id;
+    private long v1;
+    private long v2;
+    private long v3;
 
     public void onEvent(ByteBuffer buffer, 
                         long sequence, 
                         boolean endOfBatch) {
-        // Do stuff...
+        int position = buffer.position();
+        id = buffer.getLong(position + SimpleEventFlyweight.ID_OFFSET);
+        v1 = buffer.getLong(position + SimpleEventFlyweight.V1_OFFSET);
+        v2 = buffer.getLong(position + SimpleEventFlyweight.V2_OFFSET);
+        v3 = buffer.getLong(position + SimpleEventFlyweight.V3_OFFSET);
+    }
+
+    public long getCounter() {
+        return v1;
+    }
+
+    @Override
+    public String toString() {
+        return "BufferEventHandler [id=" + id + ", v1=" + v1 + ", v2=" + v2 + ", v3=" + v3 + "]";
     }
 }
@@ -0,0 +1,55 @@
+package yow2013.offheap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+
+import com.lmax.disruptor.EventHandler;
+
+/**
+ * Consumer that writes runs of published slots to a channel with one
+ * gathering write per batch, directly from the ring memory. A run is flushed
+ * at the end of each batch, or earlier once {@code batchSize} slots are
+ * pending; the slots cannot be reused until the processor's sequence moves
+ * past them, which only happens after the write.
+ */
+final class ChannelEgress implements EventHandler<ByteBuffer> {
+    private final OffHeapRingBuffer ringBuffer;
+    private final GatheringByteChannel channel;
+    private final ByteBuffer[] views;
+    private final int entrySize;
+
+    private int count = 0;
+
+    ChannelEgress(OffHeapRingBuffer ringBuffer, ByteBuffer buffer,
+            GatheringByteChannel channel, int batchSize) {
+        this.ringBuffer = ringBuffer;
+        this.channel = channel;
+        this.entrySize = ringBuffer.getEntrySize();
+        this.views = new ByteBuffer[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            views[i] = buffer.duplicate();
+        }
+    }
+
+    @Override
+    public void onEvent(ByteBuffer buffer, long sequence, boolean endOfBatch) throws IOException {
+        int offset = ringBuffer.offset(sequence);
+        views[count++].limit(offset + entrySize).position(offset);
+
+        if (endOfBatch || count == views.length) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        int first = 0;
+        while (first < count) {
+            channel.write(views, first, count - first);
+            while (first < count && !views[first].hasRemaining()) {
+                first++;
+            }
+        }
+        count = 0;
+    }
+}
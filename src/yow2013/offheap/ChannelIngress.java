@@ -0,0 +1,208 @@
+package yow2013.offheap;
+
+import static yow2013.offheap.RecordDescriptor.HEADER_LENGTH;
+import static yow2013.offheap.RecordDescriptor.LENGTH_OFFSET;
+import static yow2013.offheap.RecordDescriptor.PADDING_TYPE;
+import static yow2013.offheap.RecordDescriptor.TYPE_OFFSET;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Per-producer handle that moves data from a channel into ring slots
+ * without the heap copy that {@link OffHeapRingBuffer#put} needs.
+ * <p>
+ * {@link #read} carries a raw stream of fixed-size entries. It reads into a
+ * private direct staging buffer and claims only as many slots as it has
+ * complete entries, so it never holds a claim between calls and the ring
+ * carries exactly the stream's bytes.
+ * <p>
+ * {@link #receive} frames each datagram as a record (see
+ * {@link RecordDescriptor}) and receives it straight into its slot. It
+ * claims one slot ahead and holds that claim between calls, so the handle
+ * must be the only producer on its ring, and {@link #close()} publishes the
+ * held slot as a padding record rather than leave the ring's consumers
+ * stalled. Padding is only ever written by {@code receive}, whose rings are
+ * read through a {@link RecordHandler}.
+ * <p>
+ * Use a handle either for {@link #read} or for {@link #receive}, not both.
+ */
+public final class ChannelIngress {
+    private final OffHeapRingBuffer ringBuffer;
+    private final ByteBuffer[] views;
+    private final ByteBuffer headers;
+    private final ByteBuffer staging;
+    private final int entrySize;
+
+    private long claimLo = 0;
+    private long claimHi = -1;
+
+    ChannelIngress(OffHeapRingBuffer ringBuffer, ByteBuffer buffer, int batchSize) {
+        this.ringBuffer = ringBuffer;
+        this.entrySize = ringBuffer.getEntrySize();
+        this.headers = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.staging = ByteBuffer.allocateDirect(batchSize * entrySize);
+        this.views = new ByteBuffer[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            views[i] = buffer.duplicate();
+        }
+    }
+
+    /**
+     * Reads a stream of fixed-size entries, up to a batch at a time, and
+     * publishes every complete entry together. Bytes of a partial entry are
+     * kept for the next call.
+     *
+     * @return the number of entries published, or -1 at end of stream.
+     * @throws EOFException if the stream ends part way through an entry.
+     */
+    public int read(ReadableByteChannel channel) throws IOException {
+        if (channel.read(staging) < 0) {
+            if (staging.position() > 0) {
+                throw new EOFException("Stream ended " + staging.position()
+                        + " bytes into an entry");
+            }
+            return -1;
+        }
+
+        int entries = staging.position() / entrySize;
+        if (entries > 0) {
+            int end = staging.position();
+            long hi = ringBuffer.next(entries);
+            long lo = hi - entries + 1;
+            staging.flip();
+            try {
+                for (long sequence = lo; sequence <= hi; sequence++) {
+                    int offset = ringBuffer.offset(sequence);
+                    ByteBuffer view = views[0];
+                    view.limit(offset + entrySize).position(offset);
+                    staging.limit(staging.position() + entrySize);
+                    view.put(staging);
+                }
+            } finally {
+                ringBuffer.publish(lo, hi);
+            }
+            staging.limit(end);
+            staging.compact();
+        }
+
+        return entries;
+    }
+
+    /**
+     * Receives datagrams, one per slot, until the channel has none left or
+     * the batch is full, then publishes them together. Each slot is framed
+     * as a single-slot record of {@code type} whose length is the datagram's,
+     * so a {@link RecordHandler} sees exactly the payload. Datagrams longer
+     * than the entry size less the record header are truncated by the
+     * channel. Slots are claimed one datagram ahead, so at most one claimed
+     * slot is held between calls.
+     *
+     * @return the number of datagrams published.
+     */
+    public int receive(DatagramChannel channel, int type) throws IOException {
+        if (PADDING_TYPE == type) {
+            throw new IllegalArgumentException("Datagrams cannot use the padding type");
+        }
+        ringBuffer.checkRecordFraming();
+
+        int received = 0;
+        while (received < views.length) {
+            claim(received + 1);
+            ByteBuffer view = views[received];
+            int offset = ringBuffer.offset(claimLo + received);
+            view.limit(offset + entrySize).position(offset + HEADER_LENGTH);
+            if (null == channel.receive(view)) {
+                break;
+            }
+            putHeader(offset, type, view.position() - offset - HEADER_LENGTH);
+            received++;
+        }
+
+        if (received > 0) {
+            publish(received);
+            shiftPartial(received, heldSlots() + received);
+        }
+
+        return received;
+    }
+
+    /**
+     * Publishes the slot {@link #receive} holds, if any, as padding. Call
+     * this before abandoning the handle so the ring's consumers are not left
+     * waiting. A handle used only for {@link #read} holds nothing.
+     */
+    public void close() {
+        int held = heldSlots();
+        if (held > 0) {
+            pad(claimLo, claimHi);
+            claimLo = claimHi + 1;
+        }
+    }
+
+    /**
+     * Tops the claim up to {@code wanted} slots from {@code claimLo}, and
+     * positions the views of the newly claimed ones.
+     *
+     * @return the number of slots claimed.
+     */
+    private int claim(int wanted) {
+        int held = heldSlots();
+        if (held >= wanted) {
+            return held;
+        }
+
+        int more = wanted - held;
+        long hi = ringBuffer.next(more);
+        long lo = hi - more + 1;
+        if (0 == held) {
+            claimLo = lo;
+        } else if (lo != claimHi + 1) {
+            pad(lo, hi);
+            throw new IllegalStateException("Claimed " + lo + ".." + hi + " after "
+                    + claimHi + "; ChannelIngress must be the ring's only producer");
+        }
+        claimHi = hi;
+
+        for (int i = held; i < wanted; i++) {
+            int offset = ringBuffer.offset(claimLo + i);
+            views[i].limit(offset + entrySize).position(offset);
+        }
+        return wanted;
+    }
+
+    private int heldSlots() {
+        return (int) (claimHi - claimLo + 1);
+    }
+
+    private void publish(int slots) {
+        long hi = claimLo + slots - 1;
+        ringBuffer.publish(claimLo, hi);
+        claimLo = hi + 1;
+    }
+
+    private void pad(long lo, long hi) {
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            int offset = ringBuffer.offset(sequence);
+            putHeader(offset, PADDING_TYPE, entrySize - HEADER_LENGTH);
+        }
+        ringBuffer.publish(lo, hi);
+    }
+
+    private void putHeader(int offset, int type, int length) {
+        headers.putInt(offset + LENGTH_OFFSET, length);
+        headers.putInt(offset + TYPE_OFFSET, type);
+    }
+
+    private void shiftPartial(int from, int count) {
+        for (int i = from; i < count; i++) {
+            ByteBuffer view = views[i - from];
+            views[i - from] = views[i];
+            views[i] = view;
+        }
+    }
+}
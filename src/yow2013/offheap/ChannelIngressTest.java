@@ -0,0 +1,326 @@
+package yow2013.offheap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Pipe;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Drives {@link ChannelIngress} end to end and fails on the first mismatch:
+ * a byte stream read from a pipe and written back out through
+ * {@link OffHeapRingBuffer#createChannelEgress}, which must come out as
+ * exactly the bytes that went in, and framed datagrams received over
+ * loopback into a {@link RecordHandler}. Both rings are published to before
+ * the ingress starts, so its claims do not begin at sequence 0. A stream
+ * that ends part way through an entry must fail rather than lose the
+ * partial entry.
+ */
+public class ChannelIngressTest
+{
+    private static final int BUFFER_SIZE = 1024;
+    private static final int ENTRY_SIZE = 64;
+    private static final int BATCH_SIZE = 16;
+    private static final int PREFIX_ENTRIES = 5;
+    private static final int STREAM_ENTRIES = 100_000;
+    private static final int DATAGRAMS = 500;
+    private static final int PREFIX_TYPE = 1;
+    private static final int DATAGRAM_TYPE = 7;
+    private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    public void run() throws Exception
+    {
+        stream();
+        truncatedStream();
+        datagrams();
+        System.out.println(getClass().getSimpleName() + " passed");
+    }
+
+    private void stream() throws Exception
+    {
+        OffHeapRingBuffer ringBuffer =
+            new OffHeapRingBuffer(new SingleProducerSequencer(BUFFER_SIZE, new YieldingWaitStrategy()), ENTRY_SIZE);
+        final Pipe in = Pipe.open();
+        Pipe out = Pipe.open();
+
+        BatchEventProcessor<ByteBuffer> egress = ringBuffer.createChannelEgress(out.sink(), BATCH_SIZE);
+        Thread egressThread = new Thread(egress);
+        egressThread.start();
+
+        BufferAccessor writer = ringBuffer.newBufferAccessor();
+        byte[] entry = new byte[ENTRY_SIZE];
+        for (int i = 0; i < PREFIX_ENTRIES; i++)
+        {
+            fill(entry, i);
+            ringBuffer.put(writer, entry);
+        }
+
+        Thread source = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    ByteBuffer chunk = ByteBuffer.allocate(ENTRY_SIZE * 7 + 13);
+                    long position = (long) PREFIX_ENTRIES * ENTRY_SIZE;
+                    long end = (long) (PREFIX_ENTRIES + STREAM_ENTRIES) * ENTRY_SIZE;
+                    while (position < end)
+                    {
+                        chunk.clear();
+                        while (chunk.hasRemaining() && position < end)
+                        {
+                            chunk.put(expected(position++));
+                        }
+                        chunk.flip();
+                        while (chunk.hasRemaining())
+                        {
+                            in.sink().write(chunk);
+                        }
+                    }
+                    in.sink().close();
+                }
+                catch (IOException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+            }
+        };
+        source.start();
+
+        Drain drain = new Drain(out, PREFIX_ENTRIES + STREAM_ENTRIES);
+        drain.start();
+
+        ChannelIngress ingress = ringBuffer.newChannelIngress(BATCH_SIZE);
+        while (ingress.read(in.source()) >= 0)
+        {
+            // keep reading until end of stream
+        }
+        source.join();
+
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        while (egress.getSequence().get() < ringBuffer.getSequencer().getCursor())
+        {
+            timeout(deadline, "stream egress");
+        }
+        egress.halt();
+        egressThread.join();
+        out.sink().close();
+        drain.join();
+        if (null != drain.failure)
+        {
+            throw drain.failure;
+        }
+
+        long streamEnd = (long) (PREFIX_ENTRIES + STREAM_ENTRIES) * ENTRY_SIZE;
+        if (drain.position != streamEnd)
+        {
+            throw new IllegalStateException("Stream ended at byte " + drain.position + ", expected " + streamEnd);
+        }
+    }
+
+    /**
+     * Reads the egress pipe to its end, checking that it carries exactly the
+     * stream's bytes.
+     */
+    private static final class Drain extends Thread
+    {
+        private final Pipe out;
+        private final long streamEnd;
+        private long position;
+        private volatile Exception failure;
+
+        Drain(Pipe out, long entries)
+        {
+            this.out = out;
+            this.streamEnd = entries * ENTRY_SIZE;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                ByteBuffer received = ByteBuffer.allocate(ENTRY_SIZE * BATCH_SIZE);
+                while (out.source().read(received) >= 0)
+                {
+                    received.flip();
+                    check(received);
+                    received.compact();
+                }
+            }
+            catch (Exception e)
+            {
+                failure = e;
+            }
+        }
+
+        private void check(ByteBuffer received)
+        {
+            while (received.hasRemaining())
+            {
+                if (position == streamEnd)
+                {
+                    throw new IllegalStateException("Bytes after the end of the stream");
+                }
+                byte b = received.get();
+                if (b != expected(position))
+                {
+                    throw new IllegalStateException("Byte " + position + " is " + b);
+                }
+                position++;
+            }
+        }
+    }
+
+    private void truncatedStream() throws Exception
+    {
+        OffHeapRingBuffer ringBuffer =
+            new OffHeapRingBuffer(new SingleProducerSequencer(BUFFER_SIZE, new YieldingWaitStrategy()), ENTRY_SIZE);
+        Pipe in = Pipe.open();
+        ByteBuffer entries = ByteBuffer.allocate(ENTRY_SIZE * 2 + 13);
+        in.sink().write(entries);
+        in.sink().close();
+
+        ChannelIngress ingress = ringBuffer.newChannelIngress(BATCH_SIZE);
+        try
+        {
+            while (ingress.read(in.source()) >= 0)
+            {
+                // keep reading until end of stream
+            }
+            throw new IllegalStateException("Truncated stream was not reported");
+        }
+        catch (EOFException expected)
+        {
+            // the two whole entries are published, the partial one is not
+        }
+        if (ringBuffer.getSequencer().getCursor() != 1)
+        {
+            throw new IllegalStateException("Published up to " + ringBuffer.getSequencer().getCursor());
+        }
+    }
+
+    private void datagrams() throws Exception
+    {
+        OffHeapRingBuffer ringBuffer =
+            new OffHeapRingBuffer(new SingleProducerSequencer(BUFFER_SIZE, new YieldingWaitStrategy()), ENTRY_SIZE);
+
+        final int[] records = new int[1];
+        BatchEventProcessor<ByteBuffer> consumer = ringBuffer.createRecordHandler(new RecordHandler()
+        {
+            @Override
+            public void onRecord(int type, ByteBuffer buffer, int offset, int length, long sequence,
+                                 boolean endOfBatch)
+            {
+                if (type == PREFIX_TYPE)
+                {
+                    return;
+                }
+                int datagram = records[0]++;
+                if (type != DATAGRAM_TYPE || length != lengthOf(datagram))
+                {
+                    throw new IllegalStateException("Datagram " + datagram + " has type " + type
+                                                    + " and length " + length);
+                }
+                for (int i = 0; i < length; i++)
+                {
+                    if (buffer.get(offset + i) != (byte) (datagram + i))
+                    {
+                        throw new IllegalStateException("Datagram " + datagram + " differs at " + i);
+                    }
+                }
+            }
+        });
+        Thread consumerThread = new Thread(consumer);
+        consumerThread.start();
+
+        RecordWriter writer = ringBuffer.newRecordWriter();
+        for (int i = 0; i < PREFIX_ENTRIES; i++)
+        {
+            writer.write(PREFIX_TYPE, new byte[ENTRY_SIZE], 0, ENTRY_SIZE);
+        }
+
+        InetAddress loopback = InetAddress.getLoopbackAddress();
+        DatagramChannel receiveChannel = DatagramChannel.open().bind(new InetSocketAddress(loopback, 0));
+        receiveChannel.configureBlocking(false);
+        DatagramChannel sendChannel = DatagramChannel.open().connect(receiveChannel.getLocalAddress());
+
+        ChannelIngress ingress = ringBuffer.newChannelIngress(BATCH_SIZE);
+        ByteBuffer datagram = ByteBuffer.allocate(ENTRY_SIZE);
+        int received = 0;
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        for (int sent = 0; sent < DATAGRAMS; sent++)
+        {
+            datagram.clear();
+            for (int i = 0, length = lengthOf(sent); i < length; i++)
+            {
+                datagram.put((byte) (sent + i));
+            }
+            datagram.flip();
+            sendChannel.write(datagram);
+
+            while (received <= sent)
+            {
+                received += ingress.receive(receiveChannel, DATAGRAM_TYPE);
+                timeout(deadline, "datagram " + sent);
+            }
+        }
+        ingress.close();
+
+        while (consumer.getSequence().get() < ringBuffer.getSequencer().getCursor())
+        {
+            timeout(deadline, "datagram consumer");
+        }
+        consumer.halt();
+        consumerThread.join();
+        sendChannel.close();
+        receiveChannel.close();
+
+        if (records[0] != DATAGRAMS)
+        {
+            throw new IllegalStateException("Handled " + records[0] + " datagrams, expected " + DATAGRAMS);
+        }
+    }
+
+    private static int lengthOf(int datagram)
+    {
+        // DatagramChannel does not send empty datagrams
+        return 1 + datagram % (ENTRY_SIZE - RecordDescriptor.HEADER_LENGTH);
+    }
+
+    private static byte expected(long position)
+    {
+        return (byte) (position * 31 + (position >>> 8));
+    }
+
+    private static void fill(byte[] entry, int index)
+    {
+        for (int i = 0; i < entry.length; i++)
+        {
+            entry[i] = expected((long) index * ENTRY_SIZE + i);
+        }
+    }
+
+    private static void timeout(long deadline, String waitingFor)
+    {
+        if (System.nanoTime() > deadline)
+        {
+            throw new IllegalStateException("Timed out waiting for " + waitingFor);
+        }
+        LockSupport.parkNanos(1000);
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        new ChannelIngressTest().run();
+    }
+}
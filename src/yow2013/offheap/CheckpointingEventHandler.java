@@ -0,0 +1,45 @@
+package yow2013.offheap;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.Sequence;
+
+/**
+ * Copies the processed sequence into a second {@link Sequence} at the end of
+ * every batch, mirroring what {@link com.lmax.disruptor.BatchEventProcessor}
+ * does with its own heap sequence.
+ */
+final class CheckpointingEventHandler<T> implements EventHandler<T>, LifecycleAware {
+    private final EventHandler<T> handler;
+    private final LifecycleAware lifecycle;
+    private final Sequence checkpoint;
+
+    CheckpointingEventHandler(EventHandler<T> handler, Sequence checkpoint) {
+        this.handler = handler;
+        this.lifecycle = handler instanceof LifecycleAware ? (LifecycleAware) handler
+                : null;
+        this.checkpoint = checkpoint;
+    }
+
+    @Override
+    public void onEvent(T event, long sequence, boolean endOfBatch) throws Exception {
+        handler.onEvent(event, sequence, endOfBatch);
+        if (endOfBatch) {
+            checkpoint.set(sequence);
+        }
+    }
+
+    @Override
+    public void onStart() {
+        if (null != lifecycle) {
+            lifecycle.onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        if (null != lifecycle) {
+            lifecycle.onShutdown();
+        }
+    }
+}
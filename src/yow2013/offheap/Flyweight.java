@@ -0,0 +1,21 @@
+package yow2013.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Typed view over a fixed layout at an absolute offset within a buffer.
+ * Fields are read and written with absolute gets/puts, so a flyweight never
+ * touches the position or limit of the underlying buffer. A flyweight is
+ * owned by a single thread.
+ */
+public abstract class Flyweight {
+    protected ByteBuffer buffer;
+    protected int offset;
+
+    public final void wrap(ByteBuffer buffer, int offset) {
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    public abstract int size();
+}
@@ -0,0 +1,28 @@
+package yow2013.offheap;
+
+import java.nio.ByteBuffer;
+
+import com.lmax.disruptor.DataProvider;
+
+/**
+ * Per-thread handle that positions a single flyweight over ring slots.
+ * Obtain one per processor or producer from
+ * {@link OffHeapRingBuffer#newAccessor(Flyweight)}; it must not be shared.
+ */
+public final class FlyweightAccessor<F extends Flyweight> implements DataProvider<F> {
+    private final OffHeapRingBuffer ringBuffer;
+    private final ByteBuffer buffer;
+    private final F flyweight;
+
+    FlyweightAccessor(OffHeapRingBuffer ringBuffer, ByteBuffer buffer, F flyweight) {
+        this.ringBuffer = ringBuffer;
+        this.buffer = buffer;
+        this.flyweight = flyweight;
+    }
+
+    @Override
+    public F get(long sequence) {
+        flyweight.wrap(buffer, ringBuffer.offset(sequence));
+        return flyweight;
+    }
+}
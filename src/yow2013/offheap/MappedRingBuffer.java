@@ -0,0 +1,198 @@
+package yow2013.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.MultiProducerSequencer;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.Sequencer;
+
+/**
+ * {@link OffHeapRingBuffer} whose slots live in a memory-mapped file. A header
+ * page in front of the slots checkpoints the producer cursor on every publish
+ * and each consumer's sequence at the end of every batch, so a restarted
+ * process resumes from where it stopped. Delivery after a restart is
+ * at-least-once: the tail of the last batch a consumer saw may be replayed.
+ * <p>
+ * Consumers are assigned checkpoint slots in the order their handlers are
+ * created, so a restarted process must create them in the same order.
+ * <p>
+ * Only single-producer sequencers are supported. The cursor checkpoint is
+ * the last sequence published, which with several producers may be behind
+ * or ahead of slots that are still being filled.
+ * <p>
+ * The header is written and read in native byte order, the order
+ * {@link MappedSequence} uses, so a ring file is not portable between
+ * machines of different endianness.
+ */
+public class MappedRingBuffer extends OffHeapRingBuffer {
+    public static final int HEADER_SIZE = 4096;
+
+    private static final long MAGIC = 0x594F57323031334DL;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int BUFFER_SIZE_OFFSET = 8;
+    private static final int ENTRY_SIZE_OFFSET = 12;
+    private static final int CONSUMER_COUNT_OFFSET = 16;
+    private static final int CURSOR_OFFSET = 64;
+    private static final int CONSUMERS_OFFSET = 128;
+    private static final int SEQUENCE_STRIDE = 64;
+
+    public static final int MAX_CONSUMERS = (HEADER_SIZE - CONSUMERS_OFFSET) / SEQUENCE_STRIDE;
+
+    private final MappedByteBuffer mapped;
+    private final Sequence cursor;
+    private final Sequence[] checkpoints;
+    private int nextConsumer = 0;
+
+    private MappedRingBuffer(Sequencer sequencer, int entrySize,
+            MappedByteBuffer mapped, int consumerCount) {
+        super(sequencer, entrySize, slots(mapped));
+        this.mapped = mapped;
+        this.cursor = new MappedSequence(mapped, CURSOR_OFFSET);
+        this.checkpoints = new Sequence[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            checkpoints[i] = new MappedSequence(mapped, consumerOffset(i));
+        }
+    }
+
+    /**
+     * Maps {@code file}, creating it if it does not exist. An existing file
+     * must have been created with the same geometry; its producer cursor is
+     * restored into {@code sequencer} before this method returns.
+     *
+     * @throws IllegalArgumentException if {@code sequencer} is a
+     * {@link MultiProducerSequencer}.
+     */
+    public static MappedRingBuffer open(File file, Sequencer sequencer,
+            int entrySize, int consumerCount) throws IOException {
+        if (consumerCount < 1 || consumerCount > MAX_CONSUMERS) {
+            throw new IllegalArgumentException("consumerCount must be between 1 and " + MAX_CONSUMERS);
+        }
+        if (sequencer instanceof MultiProducerSequencer) {
+            throw new IllegalArgumentException("MappedRingBuffer needs a single-producer sequencer");
+        }
+
+        int bufferSize = sequencer.getBufferSize();
+        long length = HEADER_SIZE + (long) bufferSize * entrySize;
+        boolean exists = file.length() > 0;
+
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            if (exists && raf.length() != length) {
+                throw new IOException("Ring file " + file + " has length " + raf.length()
+                        + ", expected " + length);
+            }
+            raf.setLength(length);
+            mapped = channel.map(MapMode.READ_WRITE, 0, length);
+        }
+        mapped.order(ByteOrder.nativeOrder());
+
+        if (exists) {
+            verifyHeader(file, mapped, bufferSize, entrySize, consumerCount);
+        } else {
+            initHeader(mapped, bufferSize, entrySize, consumerCount);
+        }
+
+        MappedRingBuffer ringBuffer =
+                new MappedRingBuffer(sequencer, entrySize, mapped, consumerCount);
+        ringBuffer.recover();
+
+        return ringBuffer;
+    }
+
+    @Override
+    public void publish(long sequence) {
+        super.publish(sequence);
+        cursor.set(sequence);
+    }
+
+    @Override
+    public void publish(long lo, long hi) {
+        super.publish(lo, hi);
+        cursor.set(hi);
+    }
+
+    @Override
+    protected <T> BatchEventProcessor<T> createProcessor(
+            DataProvider<T> dataProvider, EventHandler<T> handler) {
+        if (nextConsumer == checkpoints.length) {
+            throw new IllegalStateException("All " + checkpoints.length + " consumers already created");
+        }
+
+        Sequence checkpoint = checkpoints[nextConsumer++];
+        BatchEventProcessor<T> processor = super.createProcessor(dataProvider,
+                new CheckpointingEventHandler<>(handler, checkpoint));
+        processor.getSequence().set(checkpoint.get());
+
+        return processor;
+    }
+
+    /**
+     * Flushes slots and checkpoints to the storage device. Checkpoints
+     * already survive a process crash without this; it is only needed to
+     * survive losing the machine.
+     */
+    public void force() {
+        mapped.force();
+    }
+
+    public long getCheckpoint(int consumer) {
+        return checkpoints[consumer].get();
+    }
+
+    private void recover() {
+        long last = cursor.get();
+        for (Sequence checkpoint : checkpoints) {
+            last = Math.max(last, checkpoint.get());
+        }
+
+        if (last >= 0) {
+            Sequencer sequencer = getSequencer();
+            long lo = Math.max(0, last - sequencer.getBufferSize() + 1);
+            sequencer.claim(last);
+            sequencer.publish(lo, last);
+        }
+    }
+
+    private static void initHeader(ByteBuffer header, int bufferSize,
+            int entrySize, int consumerCount) {
+        header.putInt(BUFFER_SIZE_OFFSET, bufferSize);
+        header.putInt(ENTRY_SIZE_OFFSET, entrySize);
+        header.putInt(CONSUMER_COUNT_OFFSET, consumerCount);
+        header.putLong(CURSOR_OFFSET, Sequencer.INITIAL_CURSOR_VALUE);
+        for (int i = 0; i < consumerCount; i++) {
+            header.putLong(consumerOffset(i), Sequencer.INITIAL_CURSOR_VALUE);
+        }
+        header.putLong(MAGIC_OFFSET, MAGIC);
+    }
+
+    private static void verifyHeader(File file, ByteBuffer header, int bufferSize,
+            int entrySize, int consumerCount) throws IOException {
+        if (header.getLong(MAGIC_OFFSET) != MAGIC
+                || header.getInt(BUFFER_SIZE_OFFSET) != bufferSize
+                || header.getInt(ENTRY_SIZE_OFFSET) != entrySize
+                || header.getInt(CONSUMER_COUNT_OFFSET) != consumerCount) {
+            throw new IOException("Ring file " + file + " does not match the requested geometry");
+        }
+    }
+
+    private static int consumerOffset(int consumer) {
+        return CONSUMERS_OFFSET + consumer * SEQUENCE_STRIDE;
+    }
+
+    private static ByteBuffer slots(MappedByteBuffer mapped) {
+        ByteBuffer duplicate = mapped.duplicate();
+        duplicate.position(HEADER_SIZE);
+        return duplicate.slice();
+    }
+}
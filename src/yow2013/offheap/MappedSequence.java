@@ -0,0 +1,67 @@
+package yow2013.offheap;
+
+import static yow2013.offheap.UnsafeAccess.UNSAFE;
+
+import java.nio.ByteBuffer;
+
+import com.lmax.disruptor.Sequence;
+
+/**
+ * {@link Sequence} whose value lives at an absolute address inside a direct
+ * or mapped buffer instead of on the heap, so that it can be shared with
+ * other processes mapping the same file. The inherited field is unused.
+ */
+public final class MappedSequence extends Sequence {
+    private final ByteBuffer buffer;
+    private final long address;
+
+    public MappedSequence(ByteBuffer buffer, int offset) {
+        if ((offset & 7) != 0 || offset + 8 > buffer.capacity()) {
+            throw new IllegalArgumentException("Offset " + offset + " is not an aligned long in the buffer");
+        }
+        this.buffer = buffer;
+        this.address = UnsafeAccess.address(buffer) + offset;
+    }
+
+    @Override
+    public long get() {
+        return UNSAFE.getLongVolatile(null, address);
+    }
+
+    @Override
+    public void set(long value) {
+        UNSAFE.putOrderedLong(null, address, value);
+    }
+
+    @Override
+    public void setVolatile(long value) {
+        UNSAFE.putLongVolatile(null, address, value);
+    }
+
+    @Override
+    public boolean compareAndSet(long expectedValue, long newValue) {
+        return UNSAFE.compareAndSwapLong(null, address, expectedValue, newValue);
+    }
+
+    @Override
+    public long incrementAndGet() {
+        return addAndGet(1L);
+    }
+
+    @Override
+    public long addAndGet(long increment) {
+        long currentValue;
+        long newValue;
+        do {
+            currentValue = get();
+            newValue = currentValue + increment;
+        } while (!compareAndSet(currentValue, newValue));
+
+        return newValue;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(get());
+    }
+}
@@ -1,53 +1,197 @@
 package yow2013.offheap;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.GatheringByteChannel;
 
+import com.lmax.disruptor.BatchEventProcessor;
 import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.SequenceBarrier;
 import com.lmax.disruptor.Sequencer;
 
-public class OffHeapRingBuffer implements DataProvider<ByteBuffer> {
+import yow2013.metrics.RingMetrics;
+
+/**
+ * Ring of fixed-size slots in a direct {@link ByteBuffer}. The buffer is used
+ * in native byte order, so flyweight fields and record headers are read and
+ * written without a byte swap.
+ */
+public class OffHeapRingBuffer {
+    public static final int CACHE_LINE_SIZE = 64;
+
     private final Sequencer sequencer;
     private final int entrySize;
+    private final int stride;
     private final ByteBuffer buffer;
     private final int mask;
-    
-    private final ThreadLocal<ByteBuffer> perThreadBuffer = 
-            new ThreadLocal<ByteBuffer>() {
-                @Override
-                protected ByteBuffer initialValue() {
-                    return buffer.duplicate();
-                }
-            };
+    private RingMetrics metrics;
+    private final DataProvider<ByteBuffer> slots = new DataProvider<ByteBuffer>() {
+        @Override
+        public ByteBuffer get(long sequence) {
+            return buffer;
+        }
+    };
 
     public OffHeapRingBuffer(Sequencer sequencer, int entrySize) {
+        this(sequencer, entrySize,
+                ByteBuffer.allocateDirect(sequencer.getBufferSize() * entrySize));
+    }
+
+    protected OffHeapRingBuffer(Sequencer sequencer, int entrySize, ByteBuffer buffer) {
+        this(sequencer, entrySize, entrySize, buffer);
+    }
+
+    protected OffHeapRingBuffer(Sequencer sequencer, int entrySize, int stride, ByteBuffer buffer) {
         this.sequencer = sequencer;
         this.entrySize = entrySize;
+        this.stride = stride;
         this.mask = sequencer.getBufferSize() - 1;
-        buffer = ByteBuffer.allocateDirect(sequencer.getBufferSize() * entrySize);
-    }
-
-    @Override
-    public ByteBuffer get(long sequence) {
-        int index = index(sequence);
-        int position = index * entrySize;
-        int limit = position + entrySize;
-        
-        ByteBuffer byteBuffer = perThreadBuffer.get();
-        byteBuffer.position(position).limit(limit);
-        
-        return byteBuffer;
-    }
-    
-    public void put(byte[] data) {
-        long next = sequencer.next();
+        this.buffer = buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Creates a ring whose storage starts on a cache line boundary and whose
+     * entries are rounded up to whole cache lines, so no two slots share a
+     * line. {@code spacerLines} adds that many unused lines after each slot
+     * to keep adjacent slots out of the same adjacent-line prefetch pair.
+     */
+    public static OffHeapRingBuffer aligned(Sequencer sequencer, int entrySize, int spacerLines) {
+        int alignedEntrySize = align(entrySize);
+        int stride = alignedEntrySize + spacerLines * CACHE_LINE_SIZE;
+        int length = sequencer.getBufferSize() * stride;
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(length + CACHE_LINE_SIZE);
+        int misalignment = (int) (UnsafeAccess.address(buffer) & (CACHE_LINE_SIZE - 1));
+        int start = 0 == misalignment ? 0 : CACHE_LINE_SIZE - misalignment;
+        buffer.limit(start + length).position(start);
+
+        return new OffHeapRingBuffer(sequencer, alignedEntrySize, stride, buffer.slice());
+    }
+
+    private static int align(int size) {
+        return (size + CACHE_LINE_SIZE - 1) & ~(CACHE_LINE_SIZE - 1);
+    }
+
+    public <F extends Flyweight> FlyweightAccessor<F> newAccessor(F flyweight) {
+        if (flyweight.size() > entrySize) {
+            throw new IllegalArgumentException("Flyweight of size " + flyweight.size()
+                    + " does not fit entry size " + entrySize);
+        }
+        return new FlyweightAccessor<>(this, buffer, flyweight);
+    }
+
+    public BufferAccessor newBufferAccessor() {
+        return new BufferAccessor(this, buffer, entrySize);
+    }
+
+    public RecordWriter newRecordWriter() {
+        checkRecordFraming();
+        return new RecordWriter(this, buffer);
+    }
+
+    public ChannelIngress newChannelIngress(int batchSize) {
+        return new ChannelIngress(this, buffer, batchSize);
+    }
+
+    /**
+     * Registers JMX metrics for this ring under {@code name}. Handlers created
+     * afterwards are instrumented.
+     */
+    public RingMetrics instrument(String name) {
+        metrics = new RingMetrics(name, sequencer).register();
+        return metrics;
+    }
+
+    public long next() {
+        return next(1);
+    }
+
+    public long next(int n) {
+        return null == metrics ? sequencer.next(n) : metrics.next(n);
+    }
+
+    public void publish(long sequence) {
+        sequencer.publish(sequence);
+    }
+
+    public void publish(long lo, long hi) {
+        sequencer.publish(lo, hi);
+    }
+
+    public void put(BufferAccessor writer, byte[] data) {
+        long next = next();
         try {
-            get(next).put(data);
+            writer.get(next).put(data);
         } finally {
-            sequencer.publish(next);
+            publish(next);
         }
     }
 
-    private int index(long next) {
+    public <F extends Flyweight> BatchEventProcessor<F> createHandler(
+            F flyweight, EventHandler<F> handler) {
+        return createProcessor(newAccessor(flyweight), handler);
+    }
+
+    public BatchEventProcessor<ByteBuffer> createHandler(
+            EventHandler<ByteBuffer> handler) {
+        return createProcessor(newBufferAccessor(), handler);
+    }
+
+    public BatchEventProcessor<ByteBuffer> createRecordHandler(
+            RecordHandler handler) {
+        checkRecordFraming();
+        return createProcessor(slots, new RecordEventHandler(this, handler));
+    }
+
+    public BatchEventProcessor<ByteBuffer> createChannelEgress(
+            GatheringByteChannel channel, int batchSize) {
+        return createProcessor(slots, new ChannelEgress(this, buffer, channel, batchSize));
+    }
+
+    protected <T> BatchEventProcessor<T> createProcessor(
+            DataProvider<T> dataProvider, EventHandler<T> handler) {
+        BatchEventProcessor<T> processor = newProcessor(dataProvider,
+                sequencer.newBarrier(), handler);
+
+        sequencer.addGatingSequences(processor.getSequence());
+
+        return processor;
+    }
+
+    protected <T> BatchEventProcessor<T> newProcessor(DataProvider<T> dataProvider,
+            SequenceBarrier barrier, EventHandler<T> handler) {
+        return null == metrics ? new BatchEventProcessor<>(dataProvider, barrier, handler)
+                : metrics.newProcessor(dataProvider, barrier, handler);
+    }
+
+    public Sequencer getSequencer() {
+        return sequencer;
+    }
+
+    public int getEntrySize() {
+        return entrySize;
+    }
+
+    public int getStride() {
+        return stride;
+    }
+
+    int offset(long sequence) {
+        return index(sequence) * stride;
+    }
+
+    int index(long next) {
         return (int)(next & mask);
     }
+
+    void checkRecordFraming() {
+        if (entrySize < RecordDescriptor.HEADER_LENGTH) {
+            throw new IllegalStateException("Entry size " + entrySize
+                    + " is too small for record framing");
+        }
+        if (stride != entrySize) {
+            throw new IllegalStateException("Record framing needs contiguous slots");
+        }
+    }
 }
@@ -0,0 +1,44 @@
+package yow2013.offheap;
+
+/**
+ * Off-heap layout of a player move: id, direction and distance. Matches the
+ * wire format decoded by the network handlers in {@code yow2013.basic}.
+ */
+public class PlayerMoveFlyweight extends Flyweight {
+    public static final int ID_OFFSET = 0;
+    public static final int DIRECTION_OFFSET = 8;
+    public static final int DISTANCE_OFFSET = 16;
+    public static final int SIZE = 24;
+
+    @Override
+    public int size() {
+        return SIZE;
+    }
+
+    public long getId() {
+        return buffer.getLong(offset + ID_OFFSET);
+    }
+
+    public PlayerMoveFlyweight setId(long id) {
+        buffer.putLong(offset + ID_OFFSET, id);
+        return this;
+    }
+
+    public long getDirection() {
+        return buffer.getLong(offset + DIRECTION_OFFSET);
+    }
+
+    public PlayerMoveFlyweight setDirection(long direction) {
+        buffer.putLong(offset + DIRECTION_OFFSET, direction);
+        return this;
+    }
+
+    public long getDistance() {
+        return buffer.getLong(offset + DISTANCE_OFFSET);
+    }
+
+    public PlayerMoveFlyweight setDistance(long distance) {
+        buffer.putLong(offset + DISTANCE_OFFSET, distance);
+        return this;
+    }
+}
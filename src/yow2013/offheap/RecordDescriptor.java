@@ -0,0 +1,27 @@
+package yow2013.offheap;
+
+/**
+ * Framing for variable-length records in an {@link OffHeapRingBuffer}. A
+ * record starts at a slot boundary with an 8 byte header (payload length and
+ * type, as ints in the ring's native byte order) and claims as many
+ * contiguous slots as its header plus payload need. A record never wraps;
+ * the writer fills the end of the ring with a padding record instead.
+ */
+public final class RecordDescriptor {
+    public static final int LENGTH_OFFSET = 0;
+    public static final int TYPE_OFFSET = 4;
+    public static final int HEADER_LENGTH = 8;
+
+    public static final int PADDING_TYPE = -1;
+
+    private RecordDescriptor() {
+    }
+
+    static int slotsFor(int length, int entrySize) {
+        return (HEADER_LENGTH + length + entrySize - 1) / entrySize;
+    }
+
+    static int maxLength(int bufferSize, int entrySize) {
+        return (bufferSize / 2) * entrySize - HEADER_LENGTH;
+    }
+}
@@ -0,0 +1,74 @@
+package yow2013.offheap;
+
+import static yow2013.offheap.RecordDescriptor.HEADER_LENGTH;
+import static yow2013.offheap.RecordDescriptor.LENGTH_OFFSET;
+import static yow2013.offheap.RecordDescriptor.PADDING_TYPE;
+import static yow2013.offheap.RecordDescriptor.TYPE_OFFSET;
+
+import java.nio.ByteBuffer;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+
+/**
+ * Reassembles records from the per-slot callbacks of a
+ * {@link com.lmax.disruptor.BatchEventProcessor}. The record is dispatched
+ * on its last slot so that {@code endOfBatch} keeps its usual meaning;
+ * continuation slots and padding are skipped.
+ */
+final class RecordEventHandler implements EventHandler<ByteBuffer>, LifecycleAware {
+    private final OffHeapRingBuffer ringBuffer;
+    private final RecordHandler handler;
+    private final LifecycleAware lifecycle;
+    private final int entrySize;
+
+    private long recordStart = -1;
+    private long recordEnd;
+    private int recordOffset;
+    private int recordLength;
+    private int recordType;
+
+    RecordEventHandler(OffHeapRingBuffer ringBuffer, RecordHandler handler) {
+        this.ringBuffer = ringBuffer;
+        this.handler = handler;
+        this.lifecycle = handler instanceof LifecycleAware ? (LifecycleAware) handler
+                : null;
+        this.entrySize = ringBuffer.getEntrySize();
+    }
+
+    @Override
+    public void onEvent(ByteBuffer buffer, long sequence, boolean endOfBatch) throws Exception {
+        if (sequence == recordStart || -1 == recordStart) {
+            recordStart = sequence;
+            recordOffset = ringBuffer.offset(sequence);
+            recordLength = buffer.getInt(recordOffset + LENGTH_OFFSET);
+            recordType = buffer.getInt(recordOffset + TYPE_OFFSET);
+            recordEnd = sequence + RecordDescriptor.slotsFor(recordLength, entrySize) - 1;
+        }
+
+        if (sequence == recordEnd) {
+            // move on first, so a handler that throws does not leave us
+            // stuck on this record
+            long start = recordStart;
+            recordStart = sequence + 1;
+            if (PADDING_TYPE != recordType) {
+                handler.onRecord(recordType, buffer, recordOffset + HEADER_LENGTH,
+                        recordLength, start, endOfBatch);
+            }
+        }
+    }
+
+    @Override
+    public void onStart() {
+        if (null != lifecycle) {
+            lifecycle.onStart();
+        }
+    }
+
+    @Override
+    public void onShutdown() {
+        if (null != lifecycle) {
+            lifecycle.onShutdown();
+        }
+    }
+}
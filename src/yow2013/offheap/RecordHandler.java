@@ -0,0 +1,14 @@
+package yow2013.offheap;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Callback for variable-length records. The payload is {@code length} bytes
+ * of {@code buffer} starting at the absolute {@code offset}; it is only valid
+ * for the duration of the call. {@code sequence} is the first slot of the
+ * record.
+ */
+public interface RecordHandler {
+    void onRecord(int type, ByteBuffer buffer, int offset, int length,
+            long sequence, boolean endOfBatch) throws Exception;
+}
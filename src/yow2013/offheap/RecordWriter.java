@@ -0,0 +1,83 @@
+package yow2013.offheap;
+
+import static yow2013.offheap.RecordDescriptor.HEADER_LENGTH;
+import static yow2013.offheap.RecordDescriptor.LENGTH_OFFSET;
+import static yow2013.offheap.RecordDescriptor.PADDING_TYPE;
+import static yow2013.offheap.RecordDescriptor.TYPE_OFFSET;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Per-producer handle that publishes length-prefixed records spanning one or
+ * more slots, claimed with a single {@code next(n)}. Obtain one per producer
+ * thread from {@link OffHeapRingBuffer#newRecordWriter()}.
+ */
+public final class RecordWriter {
+    private final OffHeapRingBuffer ringBuffer;
+    private final ByteBuffer view;
+    private final int entrySize;
+    private final int bufferSize;
+    private final int maxLength;
+
+    RecordWriter(OffHeapRingBuffer ringBuffer, ByteBuffer buffer) {
+        this.ringBuffer = ringBuffer;
+        this.view = buffer.duplicate().order(ByteOrder.nativeOrder());
+        this.entrySize = ringBuffer.getEntrySize();
+        this.bufferSize = ringBuffer.getSequencer().getBufferSize();
+        this.maxLength = RecordDescriptor.maxLength(bufferSize, entrySize);
+    }
+
+    public int maxLength() {
+        return maxLength;
+    }
+
+    public long write(int type, byte[] src, int offset, int length) {
+        long lo = claim(type, length);
+        view.position(ringBuffer.offset(lo) + HEADER_LENGTH);
+        view.put(src, offset, length);
+        return publish(lo, length);
+    }
+
+    public long write(int type, ByteBuffer src) {
+        int length = src.remaining();
+        long lo = claim(type, length);
+        view.position(ringBuffer.offset(lo) + HEADER_LENGTH);
+        view.put(src);
+        return publish(lo, length);
+    }
+
+    private long claim(int type, int length) {
+        if (length < 0 || length > maxLength) {
+            throw new IllegalArgumentException("Record length " + length
+                    + " outside 0.." + maxLength);
+        }
+
+        int slots = RecordDescriptor.slotsFor(length, entrySize);
+        long hi = ringBuffer.next(slots);
+        long lo = hi - slots + 1;
+
+        while (ringBuffer.index(lo) + slots > bufferSize) {
+            putHeader(lo, PADDING_TYPE, slots * entrySize - HEADER_LENGTH);
+            ringBuffer.publish(lo, hi);
+
+            hi = ringBuffer.next(slots);
+            lo = hi - slots + 1;
+        }
+
+        putHeader(lo, type, length);
+        return lo;
+    }
+
+    private long publish(long lo, int length) {
+        long hi = lo + RecordDescriptor.slotsFor(length, entrySize) - 1;
+        ringBuffer.publish(lo, hi);
+        return lo;
+    }
+
+    private void putHeader(long sequence, int type, int length) {
+        int offset = ringBuffer.offset(sequence);
+        view.putInt(offset + LENGTH_OFFSET, length);
+        view.putInt(offset + TYPE_OFFSET, type);
+    }
+}
@@ -0,0 +1,175 @@
+package yow2013.offheap;
+
+import static yow2013.offheap.UnsafeAccess.UNSAFE;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * Multi producer variant of {@link SharedSequencer}. Producers in any process
+ * claim by CAS on the shared cursor and mark each slot available with a flag
+ * in a shared int array, as {@link com.lmax.disruptor.MultiProducerSequencer}
+ * does on the heap.
+ */
+public final class SharedMultiProducerSequencer extends SharedSequencer {
+    private final Sequence gatingSequenceCache = new Sequence(Sequencer.INITIAL_CURSOR_VALUE);
+
+    private final ByteBuffer availableBuffer;
+    private final long availableAddress;
+    private final int indexMask;
+    private final int indexShift;
+
+    /**
+     * @param availableBuffer {@code 4 * bufferSize} bytes of shared memory
+     * holding the availability flags, initialised with {@link #initialise}.
+     */
+    public SharedMultiProducerSequencer(int bufferSize, WaitStrategy waitStrategy,
+            Sequence cursor, Sequence[] gatingSequences, ByteBuffer availableBuffer) {
+        super(bufferSize, waitStrategy, cursor, gatingSequences);
+        if (availableBuffer.capacity() < 4 * bufferSize) {
+            throw new IllegalArgumentException("availableBuffer too small");
+        }
+        this.availableBuffer = availableBuffer;
+        this.availableAddress = UnsafeAccess.address(availableBuffer);
+        this.indexMask = bufferSize - 1;
+        this.indexShift = Util.log2(bufferSize);
+    }
+
+    public static void initialise(ByteBuffer availableBuffer, int bufferSize) {
+        for (int i = 0; i < bufferSize; i++) {
+            availableBuffer.putInt(i * 4, -1);
+        }
+    }
+
+    @Override
+    public boolean hasAvailableCapacity(int requiredCapacity) {
+        long cursorValue = cursor.get();
+        long wrapPoint = (cursorValue + requiredCapacity) - bufferSize;
+        long cachedGatingSequence = gatingSequenceCache.get();
+
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > cursorValue) {
+            long minSequence = Util.getMinimumSequence(gatingSequences, cursorValue);
+            gatingSequenceCache.set(minSequence);
+
+            if (wrapPoint > minSequence) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public long next(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        long current;
+        long next;
+
+        do {
+            current = cursor.get();
+            next = current + n;
+
+            long wrapPoint = next - bufferSize;
+            long cachedGatingSequence = gatingSequenceCache.get();
+
+            if (wrapPoint > cachedGatingSequence || cachedGatingSequence > current) {
+                long gatingSequence = Util.getMinimumSequence(gatingSequences, current);
+
+                if (wrapPoint > gatingSequence) {
+                    LockSupport.parkNanos(1);
+                    continue;
+                }
+
+                gatingSequenceCache.set(gatingSequence);
+            } else if (cursor.compareAndSet(current, next)) {
+                break;
+            }
+        } while (true);
+
+        return next;
+    }
+
+    @Override
+    public long tryNext(int n) throws InsufficientCapacityException {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        long current;
+        long next;
+
+        do {
+            current = cursor.get();
+            next = current + n;
+
+            if (!hasAvailableCapacity(n)) {
+                throw InsufficientCapacityException.INSTANCE;
+            }
+        } while (!cursor.compareAndSet(current, next));
+
+        return next;
+    }
+
+    @Override
+    public long remainingCapacity() {
+        long consumed = Util.getMinimumSequence(gatingSequences, cursor.get());
+        long produced = cursor.get();
+        return getBufferSize() - (produced - consumed);
+    }
+
+    @Override
+    public void claim(long sequence) {
+        cursor.set(sequence);
+    }
+
+    @Override
+    public void publish(long sequence) {
+        setAvailable(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override
+    public void publish(long lo, long hi) {
+        for (long l = lo; l <= hi; l++) {
+            setAvailable(l);
+        }
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override
+    public boolean isAvailable(long sequence) {
+        return UNSAFE.getIntVolatile(null, flagAddress(sequence)) == flag(sequence);
+    }
+
+    @Override
+    public long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        for (long sequence = lowerBound; sequence <= availableSequence; sequence++) {
+            if (!isAvailable(sequence)) {
+                return sequence - 1;
+            }
+        }
+
+        return availableSequence;
+    }
+
+    private void setAvailable(long sequence) {
+        UNSAFE.putOrderedInt(null, flagAddress(sequence), flag(sequence));
+    }
+
+    private long flagAddress(long sequence) {
+        return availableAddress + (((int) sequence & indexMask) << 2);
+    }
+
+    private int flag(long sequence) {
+        return (int) (sequence >>> indexShift);
+    }
+}
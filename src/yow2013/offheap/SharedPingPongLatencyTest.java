@@ -0,0 +1,322 @@
+/*
+ * Copyright 2011 LMAX Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package yow2013.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.LifecycleAware;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+import com.lmax.disruptor.util.DaemonThreadFactory;
+
+/**
+ * Inter-process version of {@link yow2013.immutable.CustomPingPongLatencyTest}.
+ * The Pinger runs in this JVM and the Ponger in a child JVM; the two rings
+ * are {@link SharedRingBuffer}s in {@code /dev/shm}.
+ *
+ * <pre>
+ *         JVM 1          |          JVM 2
+ *                        |
+ * +-----+    +=====+     |     +-----+
+ * | EP1 |--->| RB1 |-----+---->| EP2 |
+ * +-----+    +=====+     |     +-----+
+ *    ^                   |        |
+ *    |       +=====+     |        |
+ *    +-------| RB2 |<----+--------+
+ *            +=====+     |
+ *
+ * EP1 - Pinger
+ * EP2 - Ponger
+ * RB1 - PingBuffer (/dev/shm/yow2013-ping)
+ * RB2 - PongBuffer (/dev/shm/yow2013-pong)
+ * </pre>
+ *
+ * Note: <b>This test is only useful on a system using an invariant TSC in user space from the System.nanoTime() call.</b>
+ */
+public final class SharedPingPongLatencyTest
+{
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long ITERATIONS = 10_000_000L;
+    private static final long PAUSE_NANOS = 500L;
+    private static final long HELLO = -1L;
+    private static final long SHUTDOWN = -2L;
+
+    private static final File DIRECTORY =
+            new File("/dev/shm").isDirectory() ? new File("/dev/shm") : new File(System.getProperty("java.io.tmpdir"));
+    private static final File PING_FILE = new File(DIRECTORY, "yow2013-ping");
+    private static final File PONG_FILE = new File(DIRECTORY, "yow2013-pong");
+
+    private final ExecutorService executor = Executors.newCachedThreadPool(DaemonThreadFactory.INSTANCE);
+
+    private final Histogram histogram = new Histogram(TimeUnit.HOURS.toMicros(1), 4);
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    private final SharedRingBuffer pingBuffer;
+    private final SharedRingBuffer pongBuffer;
+
+    public SharedPingPongLatencyTest() throws IOException
+    {
+        pingBuffer = openBuffer(PING_FILE);
+        pongBuffer = openBuffer(PONG_FILE);
+    }
+
+    private static SharedRingBuffer openBuffer(File file) throws IOException
+    {
+        return SharedRingBuffer.open(file, ProducerType.SINGLE, BUFFER_SIZE,
+                                     SimpleEventFlyweight.SIZE, 1, new YieldingWaitStrategy());
+    }
+
+    ///////////////////////////////////////////////////////////////////////////////////////////////
+
+    public void runTest() throws Exception
+    {
+        Process ponger = startPonger();
+        Pinger pinger = new Pinger(pingBuffer, ITERATIONS, PAUSE_NANOS);
+        BatchEventProcessor<SimpleEventFlyweight> pingProcessor =
+            pongBuffer.createHandler(new SimpleEventFlyweight(), pinger);
+
+        try
+        {
+            pinger.sendControl(HELLO);
+            while (pingBuffer.getConsumerSequence(0).get() < pingBuffer.getSequencer().getCursor())
+            {
+                Thread.sleep(10);
+            }
+
+            final int runs = 3;
+
+            for (int i = 0; i < runs; i++)
+            {
+                System.gc();
+                histogram.reset();
+
+                runDisruptorPass(pinger, pingProcessor);
+
+                if (histogram.getHistogramData().getTotalCount() < ITERATIONS)
+                {
+                    throw new IllegalStateException();
+                }
+
+                System.out.format("%s run %d Disruptor %s\n", getClass().getSimpleName(), Long.valueOf(i), histogram);
+                dumpHistogram(histogram, System.out);
+            }
+        }
+        finally
+        {
+            pinger.sendControl(SHUTDOWN);
+            ponger.waitFor();
+        }
+    }
+
+    private static Process startPonger() throws IOException
+    {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                                  SharedPingPongLatencyTest.class.getName(), "pong")
+            .inheritIO()
+            .start();
+    }
+
+    private static void dumpHistogram(Histogram histogram, final PrintStream out)
+    {
+        histogram.getHistogramData().outputPercentileDistribution(out, 1, 1000.0);
+    }
+
+    private void runDisruptorPass(Pinger pinger, BatchEventProcessor<SimpleEventFlyweight> pingProcessor)
+        throws InterruptedException, BrokenBarrierException
+    {
+        CountDownLatch latch = new CountDownLatch(1);
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        pinger.reset(barrier, latch, histogram);
+
+        executor.submit(pingProcessor);
+
+        barrier.await();
+        latch.await();
+
+        pingProcessor.halt();
+    }
+
+    private void runPonger() throws InterruptedException
+    {
+        CountDownLatch shutdown = new CountDownLatch(1);
+        BatchEventProcessor<SimpleEventFlyweight> pongProcessor =
+            pingBuffer.createHandler(new SimpleEventFlyweight(), new Ponger(pongBuffer, shutdown));
+
+        executor.submit(pongProcessor);
+        shutdown.await();
+        pongProcessor.halt();
+    }
+
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length > 0 && "pong".equals(args[0]))
+        {
+            new SharedPingPongLatencyTest().runPonger();
+            return;
+        }
+
+        PING_FILE.delete();
+        PONG_FILE.delete();
+        try
+        {
+            new SharedPingPongLatencyTest().runTest();
+        }
+        finally
+        {
+            PING_FILE.delete();
+            PONG_FILE.delete();
+        }
+    }
+
+    private static class Pinger implements EventHandler<SimpleEventFlyweight>, LifecycleAware
+    {
+        private final SharedRingBuffer buffer;
+        private final FlyweightAccessor<SimpleEventFlyweight> writer;
+        private final long maxEvents;
+        private final long pauseTimeNs;
+
+        private long counter = 0;
+        private CyclicBarrier barrier;
+        private CountDownLatch latch;
+        private Histogram histogram;
+        private long t0;
+
+        public Pinger(SharedRingBuffer buffer, long maxEvents, long pauseTimeNs)
+        {
+            this.buffer = buffer;
+            this.writer = buffer.newAccessor(new SimpleEventFlyweight());
+            this.maxEvents = maxEvents;
+            this.pauseTimeNs = pauseTimeNs;
+        }
+
+        @Override
+        public void onEvent(SimpleEventFlyweight event, long sequence, boolean endOfBatch) throws Exception
+        {
+            long t1 = System.nanoTime();
+
+            histogram.recordValueWithExpectedInterval(t1 - t0, pauseTimeNs);
+
+            if (event.getCounter() < maxEvents)
+            {
+                while (pauseTimeNs > (System.nanoTime() - t1))
+                {
+                    Thread.yield();
+                }
+
+                send();
+            }
+            else
+            {
+                latch.countDown();
+            }
+        }
+
+        private void send()
+        {
+            t0 = System.nanoTime();
+
+            long next = buffer.next();
+            writer.get(next).set(t0, counter, counter, counter);
+            buffer.publish(next);
+
+            counter++;
+        }
+
+        void sendControl(long id)
+        {
+            long next = buffer.next();
+            writer.get(next).set(id, 0, 0, 0);
+            buffer.publish(next);
+        }
+
+        @Override
+        public void onStart()
+        {
+            try
+            {
+                barrier.await();
+
+                Thread.sleep(1000);
+                send();
+            }
+            catch (Exception e)
+            {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void onShutdown()
+        {
+        }
+
+        public void reset(CyclicBarrier barrier, CountDownLatch latch, Histogram histogram)
+        {
+            this.histogram = histogram;
+            this.barrier = barrier;
+            this.latch = latch;
+
+            counter = 0;
+        }
+    }
+
+    private static class Ponger implements EventHandler<SimpleEventFlyweight>
+    {
+        private final SharedRingBuffer buffer;
+        private final FlyweightAccessor<SimpleEventFlyweight> writer;
+        private final CountDownLatch shutdown;
+
+        public Ponger(SharedRingBuffer buffer, CountDownLatch shutdown)
+        {
+            this.buffer = buffer;
+            this.writer = buffer.newAccessor(new SimpleEventFlyweight());
+            this.shutdown = shutdown;
+        }
+
+        @Override
+        public void onEvent(SimpleEventFlyweight event, long sequence, boolean endOfBatch) throws Exception
+        {
+            long id = event.getId();
+            if (HELLO == id)
+            {
+                return;
+            }
+            if (SHUTDOWN == id)
+            {
+                shutdown.countDown();
+                return;
+            }
+
+            long next = buffer.next();
+            writer.get(next).set(id, event.getV1(), event.getV2(), event.getV3());
+            buffer.publish(next);
+        }
+    }
+}
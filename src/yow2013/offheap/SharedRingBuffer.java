@@ -0,0 +1,186 @@
+package yow2013.offheap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.FileLock;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.DataProvider;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.dsl.ProducerType;
+
+/**
+ * {@link OffHeapRingBuffer} shared between processes through a memory-mapped
+ * file, typically under {@code /dev/shm}. The slots, the cursor, one
+ * sequence per consumer and, for multiple producers, the availability flags
+ * all live in the file, so producers and consumers can run in different
+ * JVMs. The first process to open the file creates it; the others attach.
+ * <p>
+ * Each consumer reports its progress into its shared sequence at the end of
+ * every batch. Handlers created without an explicit consumer index take the
+ * next index in creation order within this process.
+ */
+public class SharedRingBuffer extends OffHeapRingBuffer {
+    private static final int PAGE_SIZE = 4096;
+
+    private static final long MAGIC = 0x594F573230313353L;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int BUFFER_SIZE_OFFSET = 8;
+    private static final int ENTRY_SIZE_OFFSET = 12;
+    private static final int CONSUMER_COUNT_OFFSET = 16;
+    private static final int PRODUCER_TYPE_OFFSET = 20;
+    private static final int CURSOR_OFFSET = 128;
+    private static final int CONSUMERS_OFFSET = 256;
+    private static final int SEQUENCE_STRIDE = 128;
+
+    public static final int MAX_CONSUMERS = (PAGE_SIZE - CONSUMERS_OFFSET) / SEQUENCE_STRIDE;
+
+    private final MappedByteBuffer mapped;
+    private final Sequence[] consumerSequences;
+    private int nextConsumer = 0;
+
+    private SharedRingBuffer(SharedSequencer sequencer, int entrySize,
+            ByteBuffer slots, MappedByteBuffer mapped, Sequence[] consumerSequences) {
+        super(sequencer, entrySize, slots);
+        this.mapped = mapped;
+        this.consumerSequences = consumerSequences;
+    }
+
+    public static SharedRingBuffer open(File file, ProducerType producerType,
+            int bufferSize, int entrySize, int consumerCount,
+            WaitStrategy waitStrategy) throws IOException {
+        if (consumerCount < 1 || consumerCount > MAX_CONSUMERS) {
+            throw new IllegalArgumentException("consumerCount must be between 1 and " + MAX_CONSUMERS);
+        }
+
+        int flagsLength = ProducerType.MULTI == producerType ? pageAlign(4 * bufferSize) : 0;
+        long length = PAGE_SIZE + flagsLength + (long) bufferSize * entrySize;
+
+        MappedByteBuffer mapped;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                FileChannel channel = raf.getChannel()) {
+            FileLock lock = channel.lock();
+            try {
+                boolean exists = raf.length() > 0;
+                if (exists && raf.length() != length) {
+                    throw new IOException("Ring file " + file + " has length " + raf.length()
+                            + ", expected " + length);
+                }
+                raf.setLength(length);
+                mapped = channel.map(MapMode.READ_WRITE, 0, length);
+                mapped.order(ByteOrder.nativeOrder());
+
+                if (exists) {
+                    verifyHeader(file, mapped, producerType, bufferSize, entrySize, consumerCount);
+                } else {
+                    initHeader(mapped, producerType, bufferSize, entrySize, consumerCount);
+                }
+            } finally {
+                lock.release();
+            }
+        }
+
+        Sequence cursor = new MappedSequence(mapped, CURSOR_OFFSET);
+        Sequence[] consumerSequences = new Sequence[consumerCount];
+        for (int i = 0; i < consumerCount; i++) {
+            consumerSequences[i] = new MappedSequence(mapped, consumerOffset(i));
+        }
+
+        SharedSequencer sequencer;
+        if (ProducerType.MULTI == producerType) {
+            sequencer = new SharedMultiProducerSequencer(bufferSize, waitStrategy,
+                    cursor, consumerSequences, region(mapped, PAGE_SIZE, flagsLength));
+        } else {
+            sequencer = new SharedSingleProducerSequencer(bufferSize, waitStrategy,
+                    cursor, consumerSequences);
+        }
+
+        ByteBuffer slots = region(mapped, PAGE_SIZE + flagsLength, bufferSize * entrySize);
+        return new SharedRingBuffer(sequencer, entrySize, slots, mapped, consumerSequences);
+    }
+
+    public <F extends Flyweight> BatchEventProcessor<F> createHandler(
+            int consumer, F flyweight, EventHandler<F> handler) {
+        return createProcessor(consumer, newAccessor(flyweight), handler);
+    }
+
+    public BatchEventProcessor<ByteBuffer> createHandler(
+            int consumer, EventHandler<ByteBuffer> handler) {
+        return createProcessor(consumer, newBufferAccessor(), handler);
+    }
+
+    @Override
+    protected <T> BatchEventProcessor<T> createProcessor(
+            DataProvider<T> dataProvider, EventHandler<T> handler) {
+        return createProcessor(nextConsumer++, dataProvider, handler);
+    }
+
+    private <T> BatchEventProcessor<T> createProcessor(int consumer,
+            DataProvider<T> dataProvider, EventHandler<T> handler) {
+        Sequence consumerSequence = consumerSequences[consumer];
+        BatchEventProcessor<T> processor = newProcessor(dataProvider,
+                getSequencer().newBarrier(),
+                new CheckpointingEventHandler<>(handler, consumerSequence));
+        processor.getSequence().set(consumerSequence.get());
+
+        return processor;
+    }
+
+    public Sequence getConsumerSequence(int consumer) {
+        return consumerSequences[consumer];
+    }
+
+    public void force() {
+        mapped.force();
+    }
+
+    private static void initHeader(ByteBuffer header, ProducerType producerType,
+            int bufferSize, int entrySize, int consumerCount) {
+        header.putInt(BUFFER_SIZE_OFFSET, bufferSize);
+        header.putInt(ENTRY_SIZE_OFFSET, entrySize);
+        header.putInt(CONSUMER_COUNT_OFFSET, consumerCount);
+        header.putInt(PRODUCER_TYPE_OFFSET, producerType.ordinal());
+        header.putLong(CURSOR_OFFSET, -1L);
+        for (int i = 0; i < consumerCount; i++) {
+            header.putLong(consumerOffset(i), -1L);
+        }
+        if (ProducerType.MULTI == producerType) {
+            SharedMultiProducerSequencer.initialise(
+                    region(header, PAGE_SIZE, 4 * bufferSize), bufferSize);
+        }
+        header.putLong(MAGIC_OFFSET, MAGIC);
+    }
+
+    private static void verifyHeader(File file, ByteBuffer header, ProducerType producerType,
+            int bufferSize, int entrySize, int consumerCount) throws IOException {
+        if (header.getLong(MAGIC_OFFSET) != MAGIC
+                || header.getInt(BUFFER_SIZE_OFFSET) != bufferSize
+                || header.getInt(ENTRY_SIZE_OFFSET) != entrySize
+                || header.getInt(CONSUMER_COUNT_OFFSET) != consumerCount
+                || header.getInt(PRODUCER_TYPE_OFFSET) != producerType.ordinal()) {
+            throw new IOException("Ring file " + file + " does not match the requested geometry");
+        }
+    }
+
+    private static int consumerOffset(int consumer) {
+        return CONSUMERS_OFFSET + consumer * SEQUENCE_STRIDE;
+    }
+
+    private static int pageAlign(int length) {
+        return (length + PAGE_SIZE - 1) & ~(PAGE_SIZE - 1);
+    }
+
+    private static ByteBuffer region(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.limit(offset + length).position(offset);
+        return duplicate.slice();
+    }
+}
@@ -0,0 +1,132 @@
+package yow2013.offheap;
+
+import com.lmax.disruptor.AlertException;
+import com.lmax.disruptor.FixedSequenceGroup;
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.SequenceBarrier;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.TimeoutException;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * Base for sequencers whose cursor and gating sequences are
+ * {@link MappedSequence}s in a file shared between processes. The gating
+ * sequences are fixed when the file is created; consumers in any process
+ * report their progress into them, so they cannot be added or removed.
+ * <p>
+ * Only wait strategies that poll the cursor (busy spin, yielding, sleeping)
+ * work across processes; a blocking strategy is never signalled by a
+ * producer in another process.
+ */
+public abstract class SharedSequencer implements Sequencer {
+    protected final int bufferSize;
+    protected final WaitStrategy waitStrategy;
+    protected final Sequence cursor;
+    protected final Sequence[] gatingSequences;
+
+    protected SharedSequencer(int bufferSize, WaitStrategy waitStrategy,
+            Sequence cursor, Sequence[] gatingSequences) {
+        if (Integer.bitCount(bufferSize) != 1) {
+            throw new IllegalArgumentException("bufferSize must be a power of 2");
+        }
+        this.bufferSize = bufferSize;
+        this.waitStrategy = waitStrategy;
+        this.cursor = cursor;
+        this.gatingSequences = gatingSequences;
+    }
+
+    @Override
+    public final long getCursor() {
+        return cursor.get();
+    }
+
+    @Override
+    public final int getBufferSize() {
+        return bufferSize;
+    }
+
+    @Override
+    public long tryNext() throws InsufficientCapacityException {
+        return tryNext(1);
+    }
+
+    @Override
+    public long next() {
+        return next(1);
+    }
+
+    @Override
+    public final void addGatingSequences(Sequence... gatingSequences) {
+        throw new UnsupportedOperationException("Gating sequences of a shared ring are fixed");
+    }
+
+    @Override
+    public final boolean removeGatingSequence(Sequence sequence) {
+        throw new UnsupportedOperationException("Gating sequences of a shared ring are fixed");
+    }
+
+    @Override
+    public long getMinimumSequence() {
+        return Util.getMinimumSequence(gatingSequences, cursor.get());
+    }
+
+    @Override
+    public SequenceBarrier newBarrier(Sequence... sequencesToTrack) {
+        return new Barrier(this, sequencesToTrack);
+    }
+
+    private static final class Barrier implements SequenceBarrier {
+        private final SharedSequencer sequencer;
+        private final Sequence dependentSequence;
+        private volatile boolean alerted = false;
+
+        private Barrier(SharedSequencer sequencer, Sequence[] dependentSequences) {
+            this.sequencer = sequencer;
+            this.dependentSequence = 0 == dependentSequences.length ? sequencer.cursor
+                    : new FixedSequenceGroup(dependentSequences);
+        }
+
+        @Override
+        public long waitFor(long sequence) throws AlertException, InterruptedException, TimeoutException {
+            checkAlert();
+
+            long availableSequence = sequencer.waitStrategy.waitFor(
+                    sequence, sequencer.cursor, dependentSequence, this);
+            if (availableSequence < sequence) {
+                return availableSequence;
+            }
+
+            return sequencer.getHighestPublishedSequence(sequence, availableSequence);
+        }
+
+        @Override
+        public long getCursor() {
+            return dependentSequence.get();
+        }
+
+        @Override
+        public boolean isAlerted() {
+            return alerted;
+        }
+
+        @Override
+        public void alert() {
+            alerted = true;
+            sequencer.waitStrategy.signalAllWhenBlocking();
+        }
+
+        @Override
+        public void clearAlert() {
+            alerted = false;
+        }
+
+        @Override
+        public void checkAlert() throws AlertException {
+            if (alerted) {
+                throw AlertException.INSTANCE;
+            }
+        }
+    }
+}
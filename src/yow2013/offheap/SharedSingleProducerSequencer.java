@@ -0,0 +1,117 @@
+package yow2013.offheap;
+
+import java.util.concurrent.locks.LockSupport;
+
+import com.lmax.disruptor.InsufficientCapacityException;
+import com.lmax.disruptor.Sequence;
+import com.lmax.disruptor.Sequencer;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.util.Util;
+
+/**
+ * Single producer variant of {@link SharedSequencer}; the claim state is kept
+ * in the producing process and only the published cursor is shared.
+ */
+public final class SharedSingleProducerSequencer extends SharedSequencer {
+    private long nextValue;
+    private long cachedValue = Sequencer.INITIAL_CURSOR_VALUE;
+
+    public SharedSingleProducerSequencer(int bufferSize, WaitStrategy waitStrategy,
+            Sequence cursor, Sequence[] gatingSequences) {
+        super(bufferSize, waitStrategy, cursor, gatingSequences);
+        nextValue = cursor.get();
+    }
+
+    @Override
+    public boolean hasAvailableCapacity(int requiredCapacity) {
+        long nextValue = this.nextValue;
+
+        long wrapPoint = (nextValue + requiredCapacity) - bufferSize;
+        long cachedGatingSequence = this.cachedValue;
+
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > nextValue) {
+            long minSequence = Util.getMinimumSequence(gatingSequences, nextValue);
+            this.cachedValue = minSequence;
+
+            if (wrapPoint > minSequence) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public long next(int n) {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        long nextValue = this.nextValue;
+
+        long nextSequence = nextValue + n;
+        long wrapPoint = nextSequence - bufferSize;
+        long cachedGatingSequence = this.cachedValue;
+
+        if (wrapPoint > cachedGatingSequence || cachedGatingSequence > nextValue) {
+            long minSequence;
+            while (wrapPoint > (minSequence = Util.getMinimumSequence(gatingSequences, nextValue))) {
+                LockSupport.parkNanos(1L);
+            }
+
+            this.cachedValue = minSequence;
+        }
+
+        this.nextValue = nextSequence;
+
+        return nextSequence;
+    }
+
+    @Override
+    public long tryNext(int n) throws InsufficientCapacityException {
+        if (n < 1) {
+            throw new IllegalArgumentException("n must be > 0");
+        }
+
+        if (!hasAvailableCapacity(n)) {
+            throw InsufficientCapacityException.INSTANCE;
+        }
+
+        return this.nextValue += n;
+    }
+
+    @Override
+    public long remainingCapacity() {
+        long nextValue = this.nextValue;
+
+        long consumed = Util.getMinimumSequence(gatingSequences, nextValue);
+        long produced = nextValue;
+        return getBufferSize() - (produced - consumed);
+    }
+
+    @Override
+    public void claim(long sequence) {
+        this.nextValue = sequence;
+    }
+
+    @Override
+    public void publish(long sequence) {
+        cursor.set(sequence);
+        waitStrategy.signalAllWhenBlocking();
+    }
+
+    @Override
+    public void publish(long lo, long hi) {
+        publish(hi);
+    }
+
+    @Override
+    public boolean isAvailable(long sequence) {
+        return sequence <= cursor.get();
+    }
+
+    @Override
+    public long getHighestPublishedSequence(long lowerBound, long availableSequence) {
+        return availableSequence;
+    }
+}
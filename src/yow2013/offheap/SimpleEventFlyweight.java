@@ -0,0 +1,65 @@
+package yow2013.offheap;
+
+/**
+ * Off-heap layout of {@link yow2013.immutable.SimpleEvent}: four longs.
+ */
+public class SimpleEventFlyweight extends Flyweight {
+    public static final int ID_OFFSET = 0;
+    public static final int V1_OFFSET = 8;
+    public static final int V2_OFFSET = 16;
+    public static final int V3_OFFSET = 24;
+    public static final int SIZE = 32;
+
+    @Override
+    public int size() {
+        return SIZE;
+    }
+
+    public long getId() {
+        return buffer.getLong(offset + ID_OFFSET);
+    }
+
+    public SimpleEventFlyweight setId(long id) {
+        buffer.putLong(offset + ID_OFFSET, id);
+        return this;
+    }
+
+    public long getV1() {
+        return buffer.getLong(offset + V1_OFFSET);
+    }
+
+    public SimpleEventFlyweight setV1(long v1) {
+        buffer.putLong(offset + V1_OFFSET, v1);
+        return this;
+    }
+
+    public long getV2() {
+        return buffer.getLong(offset + V2_OFFSET);
+    }
+
+    public SimpleEventFlyweight setV2(long v2) {
+        buffer.putLong(offset + V2_OFFSET, v2);
+        return this;
+    }
+
+    public long getV3() {
+        return buffer.getLong(offset + V3_OFFSET);
+    }
+
+    public SimpleEventFlyweight setV3(long v3) {
+        buffer.putLong(offset + V3_OFFSET, v3);
+        return this;
+    }
+
+    public long getCounter() {
+        return getV1();
+    }
+
+    public SimpleEventFlyweight set(long id, long v1, long v2, long v3) {
+        buffer.putLong(offset + ID_OFFSET, id);
+        buffer.putLong(offset + V1_OFFSET, v1);
+        buffer.putLong(offset + V2_OFFSET, v2);
+        buffer.putLong(offset + V3_OFFSET, v3);
+        return this;
+    }
+}
@@ -0,0 +1,32 @@
+package yow2013.offheap;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import sun.misc.Unsafe;
+
+import com.lmax.disruptor.util.Util;
+
+final class UnsafeAccess {
+    static final Unsafe UNSAFE = Util.getUnsafe();
+
+    private static final long ADDRESS_OFFSET;
+
+    static {
+        try {
+            ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private UnsafeAccess() {
+    }
+
+    static long address(ByteBuffer buffer) {
+        if (!buffer.isDirect()) {
+            throw new IllegalArgumentException("Buffer must be direct");
+        }
+        return UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+    }
+}
@@ -0,0 +1,171 @@
+package yow2013.primitive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import yow2013.immutable.CustomRingBuffer;
+import yow2013.immutable.EventHolder;
+import yow2013.immutable.SimpleEvent;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.EventProcessor;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SingleProducerSequencer;
+import com.lmax.disruptor.YieldingWaitStrategy;
+
+/**
+ * Compares the three ways of carrying a {@link SimpleEvent} through a ring:
+ * a reference in a pre-allocated {@link EventHolder}, a reference in the
+ * {@code Object[]} of a {@link CustomRingBuffer}, and the fields inline in a
+ * {@link SimpleEventRingBuffer}. Unlike the GC tests, every handler reads
+ * all four fields, so the cost of the pointer chase shows up.
+ */
+public class LayoutComparisonBenchmark
+{
+    private static final int SIZE = 1 << 20;
+    private static final long ITERATIONS = 100_000_000L;
+    private static final int RUNS = 5;
+
+    private long sink;
+
+    private final class HolderHandler implements EventHandler<EventHolder>
+    {
+        private long sum;
+
+        @Override
+        public void onEvent(EventHolder holder, long sequence, boolean endOfBatch)
+        {
+            SimpleEvent event = holder.event;
+            sum += event.getId() + event.getV1() + event.getV2() + event.getV3();
+            holder.event = null;
+        }
+    }
+
+    private final class ReferenceHandler implements EventHandler<SimpleEvent>
+    {
+        private long sum;
+
+        @Override
+        public void onEvent(SimpleEvent event, long sequence, boolean endOfBatch)
+        {
+            sum += event.getId() + event.getV1() + event.getV2() + event.getV3();
+        }
+    }
+
+    private final class ViewHandler implements EventHandler<SimpleEventView>
+    {
+        private long sum;
+
+        @Override
+        public void onEvent(SimpleEventView event, long sequence, boolean endOfBatch)
+        {
+            sum += event.getId() + event.getV1() + event.getV2() + event.getV3();
+        }
+    }
+
+    public void run() throws InterruptedException
+    {
+        for (int i = 0; i < RUNS; i++)
+        {
+            report("holder", runHolder());
+            report("custom", runCustom());
+            report("primitive", runPrimitive());
+        }
+        System.out.println(sink);
+    }
+
+    private long runHolder() throws InterruptedException
+    {
+        RingBuffer<EventHolder> ringBuffer =
+            RingBuffer.createSingleProducer(EventHolder.FACTORY, SIZE, new YieldingWaitStrategy());
+        HolderHandler handler = new HolderHandler();
+        BatchEventProcessor<EventHolder> processor =
+            new BatchEventProcessor<>(ringBuffer, ringBuffer.newBarrier(), handler);
+        ringBuffer.addGatingSequences(processor.getSequence());
+
+        Thread t = start(processor);
+        long start = System.nanoTime();
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            long next = ringBuffer.next();
+            ringBuffer.get(next).event = new SimpleEvent(l, l, l, l);
+            ringBuffer.publish(next);
+        }
+        long duration = await(processor, start, t);
+
+        sink += handler.sum;
+        return duration;
+    }
+
+    private long runCustom() throws InterruptedException
+    {
+        CustomRingBuffer<SimpleEvent> ringBuffer =
+            new CustomRingBuffer<>(new SingleProducerSequencer(SIZE, new YieldingWaitStrategy()));
+        ReferenceHandler handler = new ReferenceHandler();
+        BatchEventProcessor<?> processor = ringBuffer.createHandler(handler);
+
+        Thread t = start(processor);
+        long start = System.nanoTime();
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            ringBuffer.put(new SimpleEvent(l, l, l, l));
+        }
+        long duration = await(processor, start, t);
+
+        sink += handler.sum;
+        return duration;
+    }
+
+    private long runPrimitive() throws InterruptedException
+    {
+        SimpleEventRingBuffer ringBuffer =
+            new SimpleEventRingBuffer(new SingleProducerSequencer(SIZE, new YieldingWaitStrategy()));
+        ViewHandler handler = new ViewHandler();
+        BatchEventProcessor<?> processor = ringBuffer.createHandler(handler);
+
+        Thread t = start(processor);
+        long start = System.nanoTime();
+        for (long l = 0; l < ITERATIONS; l++)
+        {
+            ringBuffer.put(l, l, l, l);
+        }
+        long duration = await(processor, start, t);
+
+        sink += handler.sum;
+        return duration;
+    }
+
+    private static Thread start(EventProcessor processor)
+    {
+        Thread t = new Thread(processor);
+        t.start();
+        return t;
+    }
+
+    private static long await(EventProcessor processor, long start, Thread t) throws InterruptedException
+    {
+        while (processor.getSequence().get() != ITERATIONS - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - start;
+
+        processor.halt();
+        t.join();
+
+        return duration;
+    }
+
+    private void report(String name, long duration)
+    {
+        System.out.format("%s %s %,d ops/sec%n", getClass().getSimpleName(), name,
+                          (ITERATIONS * TimeUnit.SECONDS.toNanos(1)) / duration);
+    }
+
+    public static void main(String[] args) throws InterruptedException
+    {
+        new LayoutComparisonBenchmark().run();
+    }
+}
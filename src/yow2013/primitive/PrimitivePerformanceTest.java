@@ -0,0 +1,84 @@
+package yow2013.primitive;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import yow2013.ThreadCpuTime;
+import yow2013.WaitStrategies;
+import yow2013.immutable.Constants;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.SingleProducerSequencer;
+
+public class PrimitivePerformanceTest
+{
+    private final SimpleEventRingBuffer ringBuffer;
+    private final WaitStrategies waitStrategy;
+
+    public PrimitivePerformanceTest(WaitStrategies waitStrategy)
+    {
+        this.waitStrategy = waitStrategy;
+        ringBuffer = new SimpleEventRingBuffer(new SingleProducerSequencer(Constants.SIZE, waitStrategy.create()));
+    }
+
+    public void run()
+    {
+        try
+        {
+            doRun();
+        }
+        catch (InterruptedException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
+    private void doRun() throws InterruptedException
+    {
+        BatchEventProcessor<?> batchEventProcessor = ringBuffer.createHandler(new EventHandler<SimpleEventView>()
+        {
+            @Override
+            public void onEvent(SimpleEventView event, long sequence, boolean endOfBatch)
+            {
+            }
+        });
+
+        Thread t = new Thread(batchEventProcessor);
+        t.start();
+
+        long start = System.nanoTime();
+        long producerCpu = ThreadCpuTime.current();
+        long consumerCpu = ThreadCpuTime.of(t);
+
+        long iterations = Constants.ITERATIONS;
+        for (long l = 0; l < iterations; l++)
+        {
+            ringBuffer.put(l, l, l, l);
+        }
+
+        while (batchEventProcessor.getSequence().get() != iterations - 1)
+        {
+            LockSupport.parkNanos(1);
+        }
+
+        long duration = System.nanoTime() - start;
+        producerCpu = ThreadCpuTime.current() - producerCpu;
+        consumerCpu = ThreadCpuTime.of(t) - consumerCpu;
+
+        batchEventProcessor.halt();
+        t.join();
+
+        System.out.format("%s %s %,d ops/sec, producer %s, consumer %s%n", getClass().getSimpleName(), waitStrategy,
+                          (iterations * TimeUnit.SECONDS.toNanos(1)) / duration,
+                          ThreadCpuTime.format(producerCpu, duration), ThreadCpuTime.format(consumerCpu, duration));
+    }
+
+    public static void main(String[] args)
+    {
+        for (WaitStrategies waitStrategy : WaitStrategies.fromArgs(args))
+        {
+            new PrimitivePerformanceTest(waitStrategy).run();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package yow2013.primitive;
+
+import com.lmax.disruptor.BatchEventProcessor;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.Sequencer;
+
+/**
+ * Ring of {@code SimpleEvent}s stored inline in one interleaved
+ * {@code long[]}, four longs per slot, so that consecutive events are
+ * adjacent in memory and publishing allocates nothing. Consumers read slots
+ * through a {@link SimpleEventView}.
+ */
+public class SimpleEventRingBuffer {
+    static final int ID = 0;
+    static final int V1 = 1;
+    static final int V2 = 2;
+    static final int V3 = 3;
+    static final int FIELDS = 4;
+
+    private final Sequencer sequencer;
+    private final long[] entries;
+    private final int mask;
+
+    public SimpleEventRingBuffer(Sequencer sequencer) {
+        this.sequencer = sequencer;
+        entries = new long[sequencer.getBufferSize() * FIELDS];
+        mask = sequencer.getBufferSize() - 1;
+    }
+
+    int offset(long sequence) {
+        return ((int) sequence & mask) * FIELDS;
+    }
+
+    long[] entries() {
+        return entries;
+    }
+
+    public void put(long id, long v1, long v2, long v3) {
+        long next = sequencer.next();
+        set(next, id, v1, v2, v3);
+        sequencer.publish(next);
+    }
+
+    public long next() {
+        return sequencer.next();
+    }
+
+    public long next(int n) {
+        return sequencer.next(n);
+    }
+
+    /**
+     * Writes a claimed slot, which is published with {@link #publish}.
+     */
+    public void set(long sequence, long id, long v1, long v2, long v3) {
+        int offset = offset(sequence);
+        entries[offset + ID] = id;
+        entries[offset + V1] = v1;
+        entries[offset + V2] = v2;
+        entries[offset + V3] = v3;
+    }
+
+    public void publish(long sequence) {
+        sequencer.publish(sequence);
+    }
+
+    public void publish(long lo, long hi) {
+        sequencer.publish(lo, hi);
+    }
+
+    public SimpleEventView newView() {
+        return new SimpleEventView(this);
+    }
+
+    public BatchEventProcessor<SimpleEventView> createHandler(
+            EventHandler<SimpleEventView> handler) {
+        BatchEventProcessor<SimpleEventView> processor = new BatchEventProcessor<>(
+                newView(), sequencer.newBarrier(), handler);
+        sequencer.addGatingSequences(processor.getSequence());
+        return processor;
+    }
+
+    public Sequencer getSequencer() {
+        return sequencer;
+    }
+}
@@ -0,0 +1,45 @@
+package yow2013.primitive;
+
+import com.lmax.disruptor.DataProvider;
+
+/**
+ * Per-thread view of one slot of a {@link SimpleEventRingBuffer}. Obtain one
+ * per processor from {@link SimpleEventRingBuffer#newView()}; it must not be
+ * shared, and must not be retained past the handler call.
+ */
+public final class SimpleEventView implements DataProvider<SimpleEventView> {
+    private final SimpleEventRingBuffer ringBuffer;
+    private final long[] entries;
+    private int offset;
+
+    SimpleEventView(SimpleEventRingBuffer ringBuffer) {
+        this.ringBuffer = ringBuffer;
+        this.entries = ringBuffer.entries();
+    }
+
+    @Override
+    public SimpleEventView get(long sequence) {
+        offset = ringBuffer.offset(sequence);
+        return this;
+    }
+
+    public long getId() {
+        return entries[offset + SimpleEventRingBuffer.ID];
+    }
+
+    public long getV1() {
+        return entries[offset + SimpleEventRingBuffer.V1];
+    }
+
+    public long getV2() {
+        return entries[offset + SimpleEventRingBuffer.V2];
+    }
+
+    public long getV3() {
+        return entries[offset + SimpleEventRingBuffer.V3];
+    }
+
+    public long getCounter() {
+        return getV1();
+    }
+}